@@ -0,0 +1,43 @@
+package com.shodhai.contest.config;
+
+import com.shodhai.contest.exception.UnauthorizedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Guards the admin API: requests must carry judge.admin-token, and with no token configured the
+// admin API is closed on every node
+@Component
+public class AdminTokenInterceptor implements HandlerInterceptor {
+    
+    public static final String HEADER = "X-Admin-Token";
+    
+    private final JudgeConfig judgeConfig;
+    
+    public AdminTokenInterceptor(JudgeConfig judgeConfig) {
+        this.judgeConfig = judgeConfig;
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // CORS preflights carry no credentials
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        String expected = judgeConfig.getAdminToken();
+        if (expected == null || expected.isBlank()) {
+            throw new UnauthorizedException("Admin API is disabled; set judge.admin-token to enable it");
+        }
+        String provided = request.getHeader(HEADER);
+        // Compared in constant time so the token cannot be guessed byte by byte
+        if (provided == null || !MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), provided.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException("Missing or invalid " + HEADER + " header");
+        }
+        return true;
+    }
+}
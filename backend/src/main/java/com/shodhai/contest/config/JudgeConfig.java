@@ -9,9 +9,31 @@ import org.springframework.context.annotation.Configuration;
 @Data
 public class JudgeConfig {
     private Docker docker = new Docker();
+    private Pool pool = new Pool();
+    private Cache cache = new Cache();
+    private Workspace workspace = new Workspace();
+    private Jobs jobs = new Jobs();
+    private Quotas quotas = new Quotas();
+    private Rejudge rejudge = new Rejudge();
+    private Concurrency concurrency = new Concurrency();
+    // all: API and judging in one process; api: enqueue only; worker: judge only
+    private String role = "all";
+    private String nodeId = "judge";
     private String tempDir = "/tmp/judge";
-    private Integer workerThreads = 4;
     private Integer queueCapacity = 100;
+    private Boolean parallelTests = false;
+    private Integer outputLimitBytes = 16 * 1024 * 1024;
+    private Integer hashCompareThresholdBytes = 1024 * 1024;
+    // Expected in the X-Admin-Token header of /api/admin requests; the admin API is closed while unset
+    private String adminToken;
+    
+    public boolean isJudging() {
+        return !"api".equalsIgnoreCase(role);
+    }
+    
+    public boolean isServingApi() {
+        return !"worker".equalsIgnoreCase(role);
+    }
     
     @Data
     public static class Docker {
@@ -20,6 +42,86 @@ public class JudgeConfig {
         private Double cpuLimit = 1.0;
         private Integer timeoutSeconds = 5;
         private String networkMode = "none";
+        private Integer startupGraceMs = 2000;
+        // Wall-clock allowance as a multiple of the CPU time limit
+        private Double wallTimeFactor = 2.0;
+    }
+    
+    @Data
+    public static class Pool {
+        private Boolean enabled = true;
+        private Integer sizePerLanguage = 2;
+        private Integer maxUses = 50;
+        private Long acquireTimeoutMs = 250L;
+    }
+    
+    @Data
+    public static class Cache {
+        private Integer compileMaxEntries = 500;
+        private Integer verdictMaxEntries = 10000;
+    }
+    
+    @Data
+    public static class Workspace {
+        // Should be a tmpfs mount; falls back to temp-dir when it cannot be created
+        private String root = "/dev/shm/judge";
+        private Integer poolSize = 16;
+    }
+    
+    @Data
+    public static class Jobs {
+        private Integer leaseSeconds = 60;
+        private Long heartbeatIntervalMs = 10000L;
+        private Long pollIntervalMs = 500L;
+        private Integer maxAttempts = 3;
+        private Integer drainTimeoutSeconds = 60;
+        // Cost multiplier for retries when ordering a user's queued jobs
+        private Double retryWeight = 2.0;
+        // Jobs leased per execution slot; the extra ones compile, validate and save meanwhile
+        private Integer inFlightPerSlot = 4;
+        // Completions counted for queue wait estimates
+        private Integer throughputWindowSeconds = 300;
+        // Upper bound for Retry-After when the queue is full
+        private Integer maxRetryAfterSeconds = 60;
+    }
+    
+    // Defaults for contests that do not set judge_weight / judge_min_share themselves
+    @Data
+    public static class Quotas {
+        private Integer defaultWeight = 1;
+        private Double defaultMinShare = 0.0;
+        private Long refreshIntervalMs = 30000L;
+    }
+    
+    // Bulk rejudges are fed to the queue a few jobs at a time so live submissions keep their latency
+    @Data
+    public static class Rejudge {
+        // Background jobs queued or running at once, across all nodes
+        private Integer maxInFlight = 2;
+        // No more are queued while more live submissions than this are waiting
+        private Integer maxLiveQueued = 0;
+        private Long intervalMs = 1000L;
+    }
+    
+    // Concurrent sandbox runs; the actual count is adjusted at runtime within min-slots..max-slots
+    @Data
+    public static class Concurrency {
+        private Integer minSlots = 1;
+        private Integer maxSlots = 16;
+        // Cores left to the backend and the database; sandboxes are pinned to the others
+        private Integer reservedCores = 1;
+        // Explicit cpu list such as "2-7"; empty means detect
+        private String cpus = "";
+        private Boolean pinCpus = true;
+        // 0 takes memory-fraction of the host's memory
+        private Integer memoryBudgetMb = 0;
+        private Double memoryFraction = 0.75;
+        // Wall time over CPU time above which runs are taken to be competing for cores
+        private Double contentionThreshold = 1.5;
+        // Runs this much slower in wall time than CPU time were blocked (sleeping, waiting on
+        // input) rather than kept off a core, and say nothing about contention
+        private Double blockedRatio = 4.0;
+        private Integer minSampleCpuMs = 50;
+        private Long adjustIntervalMs = 5000L;
     }
 }
-
@@ -0,0 +1,42 @@
+package com.shodhai.contest.config;
+
+import com.shodhai.contest.model.Submission;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// Changes ddl-auto=update does not make to tables it created earlier: it never widens a column or
+// replaces the enum check constraint it generated. Every statement is idempotent and runs on each
+// startup, once Hibernate has created any missing tables.
+@Component
+@Slf4j
+public class SchemaUpgrade {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    // The EntityManagerFactory is only taken so the schema update has run before this does
+    public SchemaUpgrade(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @PostConstruct
+    public void upgrade() {
+        try {
+            // Statuses such as OUTPUT_LIMIT_EXCEEDED are longer than the original varchar(20)
+            jdbcTemplate.execute("ALTER TABLE submissions ALTER COLUMN status TYPE varchar(30)");
+            String statuses = Arrays.stream(Submission.Status.values())
+                    .map(status -> "'" + status.name() + "'")
+                    .collect(Collectors.joining(", "));
+            jdbcTemplate.execute("ALTER TABLE submissions DROP CONSTRAINT IF EXISTS submissions_status_check");
+            jdbcTemplate.execute("ALTER TABLE submissions ADD CONSTRAINT submissions_status_check CHECK (status IN ("
+                    + statuses + "))");
+        } catch (Exception e) {
+            log.warn("Failed to upgrade the submissions table: {}", e.getMessage());
+        }
+    }
+}
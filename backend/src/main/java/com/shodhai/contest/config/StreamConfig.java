@@ -0,0 +1,24 @@
+package com.shodhai.contest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+// Server-sent event streams: leaderboards and submission status
+@Configuration
+@ConfigurationProperties(prefix = "streams")
+@Data
+public class StreamConfig {
+    // Platform threads writing frames to subscribers
+    private Integer sendThreads = 8;
+    // Comment frames that keep idle connections open and find dead ones
+    private Long heartbeatIntervalMs = 20000L;
+    // Clients reconnect after this and are sent a fresh snapshot
+    private Integer timeoutMinutes = 30;
+    // Leaderboard changes within one interval are sent as a single delta
+    private Long leaderboardIntervalMs = 500L;
+    // Test progress of a submission is published at most this often; verdicts always are
+    private Long progressIntervalMs = 250L;
+    // A status subscriber further behind than this is disconnected and reconnects
+    private Integer maxPendingFrames = 64;
+}
@@ -45,17 +45,6 @@ public class ContestController {
         return ResponseEntity.ok(ApiResponse.success("Successfully joined contest", response));
     }
     
-    @GetMapping("/{contestId}/leaderboard")
-    public ResponseEntity<ApiResponse<com.shodhai.contest.dto.response.LeaderboardResponse>> getLeaderboard(
-            @PathVariable Long contestId) {
-        log.info("GET /api/contests/{}/leaderboard", contestId);
-        com.shodhai.contest.dto.response.LeaderboardResponse leaderboard = 
-                contestService.getContestById(contestId) != null 
-                ? getLeaderboardData(contestId) 
-                : null;
-        return ResponseEntity.ok(ApiResponse.success(leaderboard));
-    }
-    
     @GetMapping("/{contestId}/problems/{problemId}")
     public ResponseEntity<ApiResponse<ProblemDetailResponse>> getProblem(
             @PathVariable Long contestId,
@@ -64,10 +53,4 @@ public class ContestController {
         ProblemDetailResponse problem = contestService.getProblemById(problemId);
         return ResponseEntity.ok(ApiResponse.success(problem));
     }
-    
-    private com.shodhai.contest.dto.response.LeaderboardResponse getLeaderboardData(Long contestId) {
-        // This will be delegated to LeaderboardController
-        return null;
-    }
 }
-
@@ -0,0 +1,91 @@
+package com.shodhai.contest.controller;
+
+import com.shodhai.contest.dto.request.RejudgeRequest;
+import com.shodhai.contest.dto.response.ApiResponse;
+import com.shodhai.contest.dto.response.JudgeQuotaResponse;
+import com.shodhai.contest.dto.response.JudgeWorkerResponse;
+import com.shodhai.contest.dto.response.RejudgeRunResponse;
+import com.shodhai.contest.judge.ContestQuotaManager;
+import com.shodhai.contest.judge.RejudgeRunner;
+import com.shodhai.contest.judge.WorkerRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/judge")
+@RequiredArgsConstructor
+@Slf4j
+public class JudgeAdminController {
+    
+    private final ContestQuotaManager contestQuotaManager;
+    private final WorkerRegistry workerRegistry;
+    private final RejudgeRunner rejudgeRunner;
+    
+    // Per-contest share of this node's judge workers
+    @GetMapping("/quotas")
+    public ResponseEntity<ApiResponse<List<JudgeQuotaResponse>>> getQuotaUsage() {
+        log.debug("GET /api/admin/judge/quotas");
+        
+        return ResponseEntity.ok(ApiResponse.success(contestQuotaManager.getUsage()));
+    }
+    
+    @GetMapping("/workers")
+    public ResponseEntity<ApiResponse<List<JudgeWorkerResponse>>> getWorkers() {
+        log.debug("GET /api/admin/judge/workers");
+        
+        return ResponseEntity.ok(ApiResponse.success(workerRegistry.getWorkers()));
+    }
+    
+    // The worker stops claiming on its next heartbeat and reports DRAINED once idle
+    @PostMapping("/workers/{workerId}/drain")
+    public ResponseEntity<ApiResponse<Void>> drainWorker(@PathVariable String workerId) {
+        log.info("POST /api/admin/judge/workers/{}/drain", workerId);
+        
+        workerRegistry.drain(workerId);
+        return ResponseEntity.ok(ApiResponse.success("Worker is draining", null));
+    }
+    
+    @PostMapping("/workers/{workerId}/resume")
+    public ResponseEntity<ApiResponse<Void>> resumeWorker(@PathVariable String workerId) {
+        log.info("POST /api/admin/judge/workers/{}/resume", workerId);
+        
+        workerRegistry.resume(workerId);
+        return ResponseEntity.ok(ApiResponse.success("Worker resumed", null));
+    }
+    
+    // Rejudges every finished submission matching the filters as a throttled background run
+    @PostMapping("/rejudges")
+    public ResponseEntity<ApiResponse<RejudgeRunResponse>> startRejudge(@RequestBody RejudgeRequest request) {
+        log.info("POST /api/admin/judge/rejudges - problem: {}, contest: {}, verdict: {}",
+                request.getProblemId(), request.getContestId(), request.getVerdict());
+        
+        RejudgeRunResponse run = rejudgeRunner.start(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Rejudge started", run));
+    }
+    
+    @GetMapping("/rejudges")
+    public ResponseEntity<ApiResponse<List<RejudgeRunResponse>>> getRejudges() {
+        log.debug("GET /api/admin/judge/rejudges");
+        
+        return ResponseEntity.ok(ApiResponse.success(rejudgeRunner.getRuns()));
+    }
+    
+    @GetMapping("/rejudges/{runId}")
+    public ResponseEntity<ApiResponse<RejudgeRunResponse>> getRejudge(@PathVariable Long runId) {
+        log.debug("GET /api/admin/judge/rejudges/{}", runId);
+        
+        return ResponseEntity.ok(ApiResponse.success(rejudgeRunner.getRun(runId)));
+    }
+    
+    @PostMapping("/rejudges/{runId}/cancel")
+    public ResponseEntity<ApiResponse<RejudgeRunResponse>> cancelRejudge(@PathVariable Long runId) {
+        log.info("POST /api/admin/judge/rejudges/{}/cancel", runId);
+        
+        return ResponseEntity.ok(ApiResponse.success("Rejudge cancelled", rejudgeRunner.cancel(runId)));
+    }
+}
@@ -1,12 +1,17 @@
 package com.shodhai.contest.controller;
 
 import com.shodhai.contest.dto.response.ApiResponse;
+import com.shodhai.contest.dto.response.ContestProgressResponse;
 import com.shodhai.contest.dto.response.LeaderboardResponse;
+import com.shodhai.contest.service.ContestResultService;
 import com.shodhai.contest.service.LeaderboardService;
+import com.shodhai.contest.service.LeaderboardStreamService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api")
@@ -15,15 +20,48 @@ import org.springframework.web.bind.annotation.*;
 public class LeaderboardController {
     
     private final LeaderboardService leaderboardService;
+    private final LeaderboardStreamService leaderboardStreamService;
+    private final ContestResultService contestResultService;
     
     @GetMapping("/contests/{contestId}/leaderboard")
     public ResponseEntity<ApiResponse<LeaderboardResponse>> getLeaderboard(
-            @PathVariable Long contestId) {
-        log.info("GET /api/contests/{}/leaderboard", contestId);
+            @PathVariable Long contestId,
+            @RequestParam(defaultValue = "1") int fromRank,
+            @RequestParam(defaultValue = "100") int count) {
+        log.info("GET /api/contests/{}/leaderboard - ranks {} to {}", contestId, fromRank, fromRank + count - 1);
         
-        LeaderboardResponse leaderboard = leaderboardService.getLeaderboard(contestId);
+        LeaderboardResponse leaderboard = leaderboardService.getLeaderboard(contestId, fromRank, count);
         
         return ResponseEntity.ok(ApiResponse.success(leaderboard));
     }
+    
+    @GetMapping("/contests/{contestId}/leaderboard/users/{userId}")
+    public ResponseEntity<ApiResponse<LeaderboardResponse>> getLeaderboardAroundUser(
+            @PathVariable Long contestId,
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "5") int radius) {
+        log.info("GET /api/contests/{}/leaderboard/users/{} - radius {}", contestId, userId, radius);
+        
+        LeaderboardResponse leaderboard = leaderboardService.getLeaderboardAround(contestId, userId, radius);
+        
+        return ResponseEntity.ok(ApiResponse.success(leaderboard));
+    }
+    
+    // A "snapshot" event with the leaderboard, then "delta" events with the entries that changed
+    @GetMapping(value = "/contests/{contestId}/leaderboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLeaderboard(@PathVariable Long contestId) {
+        log.debug("GET /api/contests/{}/leaderboard/stream", contestId);
+        return leaderboardStreamService.subscribe(contestId);
+    }
+    
+    @GetMapping("/contests/{contestId}/users/{userId}/progress")
+    public ResponseEntity<ApiResponse<ContestProgressResponse>> getProgress(
+            @PathVariable Long contestId,
+            @PathVariable Long userId) {
+        log.info("GET /api/contests/{}/users/{}/progress", contestId, userId);
+        
+        ContestProgressResponse progress = contestResultService.getProgress(contestId, userId);
+        
+        return ResponseEntity.ok(ApiResponse.success(progress));
+    }
 }
-
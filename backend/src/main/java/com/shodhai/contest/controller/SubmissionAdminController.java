@@ -0,0 +1,27 @@
+package com.shodhai.contest.controller;
+
+import com.shodhai.contest.dto.response.ApiResponse;
+import com.shodhai.contest.dto.response.SubmissionTimelineResponse;
+import com.shodhai.contest.service.SubmissionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/submissions")
+@RequiredArgsConstructor
+@Slf4j
+public class SubmissionAdminController {
+    
+    private final SubmissionService submissionService;
+    
+    // Where a submission's judging time went, down to per-test CPU time
+    @GetMapping("/{submissionId}/timeline")
+    public ResponseEntity<ApiResponse<SubmissionTimelineResponse>> getSubmissionTimeline(
+            @PathVariable Long submissionId) {
+        log.debug("GET /api/admin/submissions/{}/timeline", submissionId);
+        
+        return ResponseEntity.ok(ApiResponse.success(submissionService.getSubmissionTimeline(submissionId)));
+    }
+}
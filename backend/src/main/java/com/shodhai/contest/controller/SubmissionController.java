@@ -4,12 +4,15 @@ import com.shodhai.contest.dto.request.SubmitCodeRequest;
 import com.shodhai.contest.dto.response.ApiResponse;
 import com.shodhai.contest.dto.response.SubmissionResponse;
 import com.shodhai.contest.service.SubmissionService;
+import com.shodhai.contest.service.SubmissionStatusStreamService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/submissions")
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class SubmissionController {
     
     private final SubmissionService submissionService;
+    private final SubmissionStatusStreamService submissionStatusStreamService;
     
     @PostMapping
     public ResponseEntity<ApiResponse<SubmissionResponse>> submitCode(
@@ -32,6 +36,13 @@ public class SubmissionController {
                 .body(ApiResponse.success("Submission received and queued for judging", submission));
     }
     
+    // A "ready" event once connected, then a "status" event for each transition of the user's submissions
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSubmissionStatus(@RequestParam Long userId) {
+        log.debug("GET /api/submissions/stream - User: {}", userId);
+        return submissionStatusStreamService.subscribe(userId);
+    }
+    
     @GetMapping("/{submissionId}")
     public ResponseEntity<ApiResponse<SubmissionResponse>> getSubmissionStatus(
             @PathVariable Long submissionId) {
@@ -42,4 +53,3 @@ public class SubmissionController {
         return ResponseEntity.ok(ApiResponse.success(submission));
     }
 }
-
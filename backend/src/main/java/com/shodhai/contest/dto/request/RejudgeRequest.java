@@ -0,0 +1,18 @@
+package com.shodhai.contest.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// At least one filter is required; a verdict is a submission status such as WRONG_ANSWER
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejudgeRequest {
+    
+    private Long problemId;
+    
+    private Long contestId;
+    
+    private String verdict;
+}
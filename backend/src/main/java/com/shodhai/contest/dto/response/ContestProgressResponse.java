@@ -0,0 +1,33 @@
+package com.shodhai.contest.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContestProgressResponse {
+    private Long contestId;
+    private Long userId;
+    private Integer totalScore;
+    private Integer problemsSolved;
+    private LocalDateTime lastAcceptedAt;
+    private List<ProblemProgress> problems;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProblemProgress {
+        private Long problemId;
+        private Integer bestScore;
+        private Boolean accepted;
+        private LocalDateTime firstAcceptedAt;
+        private Integer attempts;
+    }
+}
@@ -0,0 +1,21 @@
+package com.shodhai.contest.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JudgeQuotaResponse {
+    private Long contestId;
+    private Integer weight;
+    private Double minShare;
+    private Long queuedJobs;
+    private Integer runningJobs;
+    private Integer targetSlots;
+    private Long completedJobs;
+    private Long judgeTimeMs;
+}
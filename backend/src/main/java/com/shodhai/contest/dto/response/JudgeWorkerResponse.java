@@ -0,0 +1,21 @@
+package com.shodhai.contest.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JudgeWorkerResponse {
+    private String workerId;
+    private String nodeId;
+    private String status;
+    private Integer slots;
+    private Integer inFlight;
+    private LocalDateTime startedAt;
+    private LocalDateTime lastHeartbeatAt;
+}
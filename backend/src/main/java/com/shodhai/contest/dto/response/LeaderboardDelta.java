@@ -0,0 +1,22 @@
+package com.shodhai.contest.dto.response;
+
+import com.shodhai.contest.dto.response.LeaderboardResponse.LeaderboardEntry;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Changes to the leaderboard since the previous frame: entries whose rank or score changed, and
+// users that dropped out of the top entries
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardDelta {
+    private Long contestId;
+    private LocalDateTime lastUpdated;
+    private List<LeaderboardEntry> entries;
+    private List<Long> removed;
+}
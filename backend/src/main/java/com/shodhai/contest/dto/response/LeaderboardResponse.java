@@ -14,6 +14,8 @@ import java.util.List;
 public class LeaderboardResponse {
     private Long contestId;
     private LocalDateTime lastUpdated;
+    // Users ranked in the contest, of which entries is a page
+    private Integer totalEntries;
     private List<LeaderboardEntry> entries;
     
     @Data
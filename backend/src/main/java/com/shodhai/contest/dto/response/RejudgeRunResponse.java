@@ -0,0 +1,27 @@
+package com.shodhai.contest.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejudgeRunResponse {
+    private Long id;
+    private Long problemId;
+    private Long contestId;
+    private String verdict;
+    private String status;
+    private Long totalSubmissions;
+    private Long queuedSubmissions;
+    private Long judgedSubmissions;
+    private Long pendingSubmissions;
+    private Long changedSubmissions;
+    private Long affectedUsers;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -27,6 +27,9 @@ public class SubmissionResponse {
     private Integer totalTestCases;
     private LocalDateTime submittedAt;
     private LocalDateTime completedAt;
+    // Only set while the submission waits in the judge queue
+    private Long queuePosition;
+    private Integer estimatedWaitSeconds;
     private List<TestCaseResult> testCaseResults;
     
     @Data
@@ -0,0 +1,28 @@
+package com.shodhai.contest.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// A status transition pushed to the submitting user: RUNNING with the tests finished so far, then
+// the verdict. Error messages are left out to keep it small; clients read them from the submission.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionStatusEvent {
+    private Long submissionId;
+    private Long problemId;
+    private Long contestId;
+    private String status;
+    private String result;
+    private Integer score;
+    private Integer testsCompleted;
+    private Integer testCasesPassed;
+    private Integer totalTestCases;
+    private Integer executionTimeMs;
+    private Integer memoryUsedMb;
+    private LocalDateTime completedAt;
+}
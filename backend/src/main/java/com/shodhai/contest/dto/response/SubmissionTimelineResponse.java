@@ -0,0 +1,40 @@
+package com.shodhai.contest.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Stage totals are summed over tests, so they can exceed totalMs when tests run in parallel
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionTimelineResponse {
+    private Long submissionId;
+    private Integer attempt;
+    private LocalDateTime enqueuedAt;
+    private Long totalMs;
+    private Long queueMs;
+    private Long compileMs;
+    private Long slotWaitMs;
+    private Long sandboxMs;
+    private Long validateMs;
+    private Long saveMs;
+    private List<TimelineEvent> events;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimelineEvent {
+        private String stage;
+        private Integer test;
+        // Milliseconds after the submission was queued
+        private Long offsetMs;
+        private Long durationMs;
+        private Integer cpuMs;
+    }
+}
@@ -1,6 +1,7 @@
 package com.shodhai.contest.exception;
 
 import com.shodhai.contest.dto.response.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -31,6 +32,24 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error("Judge system error: " + ex.getMessage()));
     }
     
+    // Nothing was stored, so the client can simply submit again after Retry-After
+    @ExceptionHandler(QueueFullException.class)
+    public ResponseEntity<ApiResponse<Object>> handleQueueFullException(
+            QueueFullException ex, WebRequest request) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(UnauthorizedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleUnauthorizedException(
+            UnauthorizedException ex, WebRequest request) {
+        return ResponseEntity
+                .status(HttpStatus.UNAUTHORIZED)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationExceptions(
             MethodArgumentNotValidException ex) {
@@ -0,0 +1,14 @@
+package com.shodhai.contest.exception;
+
+public class QueueFullException extends RuntimeException {
+    private final int retryAfterSeconds;
+    
+    public QueueFullException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
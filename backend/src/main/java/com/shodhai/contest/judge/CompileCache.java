@@ -0,0 +1,224 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Compiled builds on local disk keyed by (language, compiler command, source hash), evicted LRU
+@Component
+@Slf4j
+public class CompileCache {
+    
+    private final JudgeConfig judgeConfig;
+    private final Path cacheDir;
+    // Access-ordered, so iteration starts at the least recently used build
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Eviction and publishing touch the disk while holding this, so it is not a monitor
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public CompileCache(JudgeConfig judgeConfig) {
+        this.judgeConfig = judgeConfig;
+        this.cacheDir = Paths.get(judgeConfig.getTempDir(), "cache", "builds");
+        loadExistingEntries();
+    }
+    
+    // Builds left by a previous run stay usable; oldest first so LRU order roughly survives
+    private void loadExistingEntries() {
+        try {
+            Files.createDirectories(cacheDir);
+            File[] existing = cacheDir.toFile().listFiles(File::isDirectory);
+            if (existing == null) {
+                return;
+            }
+            Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+            for (File directory : existing) {
+                if (directory.getName().startsWith(".")) {
+                    deleteDirectory(directory);
+                } else {
+                    entries.put(directory.getName(), new Entry(directory.toPath()));
+                }
+            }
+            log.info("Compile cache loaded {} builds", entries.size());
+        } catch (IOException e) {
+            log.warn("Failed to load compile cache: {}", e.getMessage());
+        }
+    }
+    
+    public String key(String language, String compileCommand, String fileName, String code) {
+        return sha256(language, compileCommand, fileName, code);
+    }
+    
+    // Returns the cached build directory and pins it until release() is called
+    public Optional<Path> acquire(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null || !Files.isDirectory(entry.directory)) {
+                if (entry != null) {
+                    entries.remove(key);
+                }
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            entry.users++;
+            hits.incrementAndGet();
+            return Optional.of(entry.directory);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Moves a fresh build into the cache and pins it; an identical concurrent build wins if stored first
+    public Path store(String key, Path buildDir) throws IOException {
+        Path target = cacheDir.resolve(key);
+        lock.lock();
+        try {
+            Entry existing = entries.get(key);
+            if (existing != null && Files.isDirectory(existing.directory)) {
+                existing.users++;
+                return existing.directory;
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        Path staging = cacheDir.resolve("." + key + "-" + System.nanoTime());
+        copyDirectory(buildDir, staging);
+        
+        lock.lock();
+        try {
+            Entry existing = entries.get(key);
+            if (existing != null && Files.isDirectory(existing.directory)) {
+                deleteDirectory(staging.toFile());
+                existing.users++;
+                return existing.directory;
+            }
+            deleteDirectory(target.toFile());
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            Entry entry = new Entry(target);
+            entry.users = 1;
+            entries.put(key, entry);
+            evict();
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void release(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.users > 0) {
+                entry.users--;
+            }
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Pinned builds are skipped, so the cache may briefly exceed its limit under load
+    private void evict() {
+        int maxEntries = judgeConfig.getCache().getCompileMaxEntries();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.users == 0) {
+                iterator.remove();
+                deleteDirectory(entry.directory.toFile());
+            }
+        }
+    }
+    
+    private void copyDirectory(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        File[] files = source.toFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                copyDirectory(file.toPath(), target.resolve(file.getName()));
+            } else {
+                Files.copy(file.toPath(), target.resolve(file.getName()), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+    
+    private void deleteDirectory(File directory) {
+        if (directory.exists()) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        deleteDirectory(file);
+                    } else {
+                        file.delete();
+                    }
+                }
+            }
+            directory.delete();
+        }
+    }
+    
+    static String sha256(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static class Entry {
+        private final Path directory;
+        private int users = 0;
+        
+        Entry(Path directory) {
+            this.directory = directory;
+        }
+    }
+}
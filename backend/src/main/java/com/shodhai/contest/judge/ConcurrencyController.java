@@ -0,0 +1,291 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.model.JudgeJob;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Decides how many sandboxes run at once on this node. Works as a resizable semaphore: every run
+// holds an execution slot, pinned to its own core when pinning is on, and the memory limit of the
+// problem it runs, however many judge threads are waiting for one. The slot count is capped by
+// the cores and the memory budget, and moves within min-slots..max-slots: up by one while work is
+// waiting, down by a quarter when the median run takes noticeably longer in wall time than in CPU
+// time, which means runs are competing for cores and their timings are no longer reliable. Runs far
+// slower than that were blocked rather than contended and are left out, so a few submissions that
+// sleep cannot throttle the judge.
+@Component
+@Slf4j
+public class ConcurrencyController {
+    
+    private static final String CPUSET_FILE = "/sys/fs/cgroup/cpuset.cpus.effective";
+    // Fewer runs than this since the last adjustment are not enough to judge contention
+    private static final int MIN_SAMPLES = 5;
+    
+    private final JudgeConfig judgeConfig;
+    private final JudgeJobRepository judgeJobRepository;
+    // Not a monitor: waiting judge threads are virtual and must not pin their carriers
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final Deque<Integer> freeCpus = new ArrayDeque<>();
+    private List<Integer> cpus = List.of();
+    private long memoryBudgetMb;
+    private int limit;
+    private int active = 0;
+    private int waiting = 0;
+    private long reservedMemoryMb = 0;
+    // Largest per-problem memory limit seen recently; memory caps the slot count through it
+    private int typicalMemoryMb;
+    private int windowMaxMemoryMb = 0;
+    // Wall time over CPU time of each run since the last adjustment
+    private final List<Double> windowSlowdowns = new ArrayList<>();
+    
+    public ConcurrencyController(JudgeConfig judgeConfig, JudgeJobRepository judgeJobRepository) {
+        this.judgeConfig = judgeConfig;
+        this.judgeJobRepository = judgeJobRepository;
+    }
+    
+    @PostConstruct
+    public void start() {
+        JudgeConfig.Concurrency config = judgeConfig.getConcurrency();
+        if (config.getPinCpus()) {
+            cpus = detectCpus();
+            freeCpus.addAll(cpus);
+        }
+        memoryBudgetMb = config.getMemoryBudgetMb() > 0
+                ? config.getMemoryBudgetMb()
+                : (long) (totalMemoryMb() * config.getMemoryFraction());
+        typicalMemoryMb = toMegabytes(judgeConfig.getDocker().getMemoryLimit());
+        limit = capacity();
+        log.info("Judge concurrency starts at {} slots (cpus {}, memory budget {} MB)",
+                limit, cpus.isEmpty() ? "unpinned" : cpus, memoryBudgetMb);
+    }
+    
+    // Blocks until a slot is free and the run's memory limit fits in the budget; a run is always
+    // admitted when nothing else is running, so an oversized limit cannot stall the judge
+    public Slot acquire(int memoryLimitMb) throws InterruptedException {
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (active >= limit || (active > 0 && reservedMemoryMb + memoryLimitMb > memoryBudgetMb)) {
+                    slotFreed.await();
+                }
+            } finally {
+                waiting--;
+            }
+            active++;
+            reservedMemoryMb += memoryLimitMb;
+            windowMaxMemoryMb = Math.max(windowMaxMemoryMb, memoryLimitMb);
+            Integer cpu = freeCpus.poll();
+            return new Slot(cpu != null ? cpu : -1, memoryLimitMb);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void release(Slot slot) {
+        lock.lock();
+        try {
+            active--;
+            reservedMemoryMb -= slot.getMemoryLimitMb();
+            if (slot.getCpu() >= 0) {
+                freeCpus.offer(slot.getCpu());
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Timings measured inside the sandbox; runs too short to say anything, and runs that spent most
+    // of their time blocked, are ignored
+    public void recordRun(long cpuUsec, long wallUsec) {
+        JudgeConfig.Concurrency config = judgeConfig.getConcurrency();
+        if (cpuUsec < config.getMinSampleCpuMs() * 1000L || wallUsec <= 0) {
+            return;
+        }
+        double slowdown = (double) wallUsec / cpuUsec;
+        if (slowdown > config.getBlockedRatio()) {
+            return;
+        }
+        lock.lock();
+        try {
+            windowSlowdowns.add(slowdown);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${judge.concurrency.adjust-interval-ms:5000}")
+    public void adjust() {
+        if (!judgeConfig.isJudging()) {
+            return;
+        }
+        // Read outside the lock so a slow query does not hold up slot handover
+        long queued = judgeJobRepository.countByStatus(JudgeJob.Status.QUEUED);
+        lock.lock();
+        try {
+            if (windowMaxMemoryMb > 0) {
+                typicalMemoryMb = windowMaxMemoryMb;
+            }
+            int capacity = capacity();
+            int minSlots = Math.min(judgeConfig.getConcurrency().getMinSlots(), capacity);
+            double slowdown = windowSlowdowns.size() >= MIN_SAMPLES ? median(windowSlowdowns) : 1.0;
+            
+            int previous = limit;
+            if (slowdown > judgeConfig.getConcurrency().getContentionThreshold()) {
+                limit = Math.max(minSlots, limit - Math.max(1, limit / 4));
+            } else if ((waiting > 0 || queued > 0) && limit < capacity) {
+                limit++;
+            }
+            limit = Math.max(minSlots, Math.min(limit, capacity));
+            
+            if (limit != previous) {
+                log.info("Judge concurrency {} -> {} (capacity {}, slowdown {}, queued {}, waiting {})",
+                        previous, limit, capacity, String.format(Locale.ROOT, "%.2f", slowdown), queued, waiting);
+                slotFreed.signalAll();
+            }
+            windowMaxMemoryMb = 0;
+            windowSlowdowns.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+    
+    // Most slots the host can take: one per pinned core (or per core's worth of the sandbox CPU
+    // limit), as many as the memory budget holds at recent limits, and never above max-slots
+    private int capacity() {
+        JudgeConfig.Concurrency config = judgeConfig.getConcurrency();
+        int cpuCapacity = !cpus.isEmpty()
+                ? cpus.size()
+                : (int) ((Runtime.getRuntime().availableProcessors() - config.getReservedCores())
+                        / judgeConfig.getDocker().getCpuLimit());
+        int memoryCapacity = (int) (memoryBudgetMb / Math.max(1, typicalMemoryMb));
+        int capacity = Math.min(config.getMaxSlots(), Math.min(cpuCapacity, memoryCapacity));
+        return Math.max(config.getMinSlots(), Math.max(1, capacity));
+    }
+    
+    // The configured list, else the cores this process may run on minus the reserved ones
+    private List<Integer> detectCpus() {
+        JudgeConfig.Concurrency config = judgeConfig.getConcurrency();
+        if (!config.getCpus().isBlank()) {
+            return parseCpuList(config.getCpus());
+        }
+        List<Integer> available = new ArrayList<>();
+        Path cpusetFile = Paths.get(CPUSET_FILE);
+        if (Files.isReadable(cpusetFile)) {
+            try {
+                available = parseCpuList(Files.readString(cpusetFile));
+            } catch (IOException | NumberFormatException e) {
+                log.warn("Could not read {}: {}", CPUSET_FILE, e.getMessage());
+            }
+        }
+        if (available.isEmpty()) {
+            for (int cpu = 0; cpu < Runtime.getRuntime().availableProcessors(); cpu++) {
+                available.add(cpu);
+            }
+        }
+        int reserved = Math.min(config.getReservedCores(), available.size() - 1);
+        return available.subList(Math.max(0, reserved), available.size());
+    }
+    
+    // Kernel cpu list format, e.g. "0-3,6"
+    static List<Integer> parseCpuList(String list) {
+        List<Integer> cpus = new ArrayList<>();
+        for (String part : list.trim().split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] range = part.trim().split("-");
+            int first = Integer.parseInt(range[0]);
+            int last = range.length > 1 ? Integer.parseInt(range[1]) : first;
+            for (int cpu = first; cpu <= last; cpu++) {
+                cpus.add(cpu);
+            }
+        }
+        return cpus;
+    }
+    
+    private long totalMemoryMb() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getTotalMemorySize() / (1024 * 1024);
+        }
+        return Runtime.getRuntime().maxMemory() / (1024 * 1024);
+    }
+    
+    // Docker memory sizes such as "256m" or "1g"
+    static int toMegabytes(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        char unit = value.charAt(value.length() - 1);
+        if (Character.isDigit(unit)) {
+            return (int) (Long.parseLong(value) / (1024 * 1024));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (unit) {
+            case 'g' -> (int) (amount * 1024);
+            case 'k' -> (int) (amount / 1024);
+            case 'b' -> (int) (amount / (1024 * 1024));
+            default -> (int) amount;
+        };
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Slot {
+        // -1 when sandboxes are not pinned
+        private final int cpu;
+        private final int memoryLimitMb;
+    }
+}
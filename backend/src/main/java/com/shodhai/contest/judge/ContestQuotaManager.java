@@ -0,0 +1,184 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.dto.response.JudgeQuotaResponse;
+import com.shodhai.contest.model.Contest;
+import com.shodhai.contest.repository.ContestRepository;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Splits this node's workers between contests. Every contest with work first gets its guaranteed
+// minimum share, the rest is handed out by weight, and capacity a contest cannot use is lent to
+// the others until it has work again. Running jobs are never preempted.
+@Component
+@Slf4j
+public class ContestQuotaManager {
+    
+    private final JudgeConfig judgeConfig;
+    private final ContestRepository contestRepository;
+    private final Map<Long, Quota> quotas = new ConcurrentHashMap<>();
+    private final Map<Long, Usage> usage = new ConcurrentHashMap<>();
+    private volatile long quotasLoadedAt = 0;
+    
+    public ContestQuotaManager(JudgeConfig judgeConfig, ContestRepository contestRepository) {
+        this.judgeConfig = judgeConfig;
+        this.contestRepository = contestRepository;
+    }
+    
+    // How many jobs to claim per contest given what is queued and what this node runs now
+    public Map<Long, Integer> plan(List<JudgeJobRepository.ContestDemand> demand, Map<Long, Integer> running,
+            int totalSlots, int freeSlots) {
+        Map<Long, Long> queued = new HashMap<>();
+        for (JudgeJobRepository.ContestDemand entry : demand) {
+            queued.put(entry.getContestId(), entry.getQueued());
+        }
+        Set<Long> contests = new HashSet<>(queued.keySet());
+        contests.addAll(running.keySet());
+        refreshQuotas(contests);
+        
+        int total = totalSlots;
+        Map<Long, Integer> target = new HashMap<>();
+        Map<Long, Long> wanted = new HashMap<>();
+        int assigned = 0;
+        
+        // Guaranteed minimums, never more than a contest can use
+        for (Long contestId : contests) {
+            long want = running.getOrDefault(contestId, 0) + queued.getOrDefault(contestId, 0L);
+            wanted.put(contestId, want);
+            int guaranteed = (int) Math.min(want, Math.ceil(quota(contestId).minShare * total));
+            guaranteed = Math.min(guaranteed, total - assigned);
+            target.put(contestId, guaranteed);
+            assigned += guaranteed;
+        }
+        
+        // Remaining slots one at a time to the contest furthest below its weighted share; contests
+        // without more work drop out, which is how idle capacity gets borrowed
+        while (assigned < total) {
+            Long next = null;
+            double lowest = Double.MAX_VALUE;
+            for (Long contestId : contests) {
+                if (target.get(contestId) >= wanted.get(contestId)) {
+                    continue;
+                }
+                double load = (double) target.get(contestId) / quota(contestId).weight;
+                if (load < lowest) {
+                    lowest = load;
+                    next = contestId;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            target.merge(next, 1, Integer::sum);
+            assigned++;
+        }
+        
+        // Contests furthest below target claim first when there are fewer free slots than gaps
+        Map<Long, Integer> allowance = new LinkedHashMap<>();
+        List<Long> order = new ArrayList<>(contests);
+        order.sort(Comparator.comparingInt(contestId -> running.getOrDefault(contestId, 0) - target.get(contestId)));
+        int free = freeSlots;
+        for (Long contestId : order) {
+            int gap = target.get(contestId) - running.getOrDefault(contestId, 0);
+            int claim = Math.min(gap, free);
+            if (claim > 0) {
+                allowance.put(contestId, claim);
+                free -= claim;
+            }
+        }
+        
+        for (Long contestId : contests) {
+            Usage contestUsage = usage(contestId);
+            contestUsage.queued = queued.getOrDefault(contestId, 0L);
+            contestUsage.running = running.getOrDefault(contestId, 0);
+            contestUsage.targetSlots = target.get(contestId);
+        }
+        return allowance;
+    }
+    
+    public void recordCompletion(Long contestId, long judgeTimeMs) {
+        Usage contestUsage = usage(contestId);
+        contestUsage.completedJobs.incrementAndGet();
+        contestUsage.judgeTimeMs.addAndGet(judgeTimeMs);
+    }
+    
+    public List<JudgeQuotaResponse> getUsage() {
+        List<JudgeQuotaResponse> result = new ArrayList<>();
+        usage.forEach((contestId, contestUsage) -> {
+            Quota quota = quota(contestId);
+            result.add(JudgeQuotaResponse.builder()
+                    .contestId(contestId)
+                    .weight(quota.weight)
+                    .minShare(quota.minShare)
+                    .queuedJobs(contestUsage.queued)
+                    .runningJobs(contestUsage.running)
+                    .targetSlots(contestUsage.targetSlots)
+                    .completedJobs(contestUsage.completedJobs.get())
+                    .judgeTimeMs(contestUsage.judgeTimeMs.get())
+                    .build());
+        });
+        result.sort(Comparator.comparing(JudgeQuotaResponse::getContestId));
+        return result;
+    }
+    
+    // Contest settings are re-read periodically so changes apply without a restart
+    private void refreshQuotas(Set<Long> contests) {
+        boolean expired = System.currentTimeMillis() - quotasLoadedAt > judgeConfig.getQuotas().getRefreshIntervalMs();
+        if (!expired && quotas.keySet().containsAll(contests)) {
+            return;
+        }
+        try {
+            for (Contest contest : contestRepository.findAllById(contests)) {
+                quotas.put(contest.getId(), new Quota(
+                        contest.getJudgeWeight() != null
+                                ? contest.getJudgeWeight()
+                                : judgeConfig.getQuotas().getDefaultWeight(),
+                        contest.getJudgeMinShare() != null
+                                ? contest.getJudgeMinShare()
+                                : judgeConfig.getQuotas().getDefaultMinShare()));
+            }
+            quotasLoadedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("Failed to load contest judge quotas: {}", e.getMessage());
+        }
+    }
+    
+    private Quota quota(Long contestId) {
+        return quotas.getOrDefault(contestId, new Quota(
+                judgeConfig.getQuotas().getDefaultWeight(), judgeConfig.getQuotas().getDefaultMinShare()));
+    }
+    
+    private Usage usage(Long contestId) {
+        return usage.computeIfAbsent(contestId, id -> new Usage());
+    }
+    
+    private static class Quota {
+        private final int weight;
+        private final double minShare;
+        
+        Quota(int weight, double minShare) {
+            this.weight = Math.max(1, weight);
+            this.minShare = Math.max(0.0, Math.min(1.0, minShare));
+        }
+    }
+    
+    private static class Usage {
+        private volatile long queued;
+        private volatile int running;
+        private volatile int targetSlots;
+        private final AtomicLong completedJobs = new AtomicLong();
+        private final AtomicLong judgeTimeMs = new AtomicLong();
+    }
+}
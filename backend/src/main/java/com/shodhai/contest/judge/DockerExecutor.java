@@ -2,29 +2,95 @@ package com.shodhai.contest.judge;
 
 import com.shodhai.contest.config.JudgeConfig;
 import com.shodhai.contest.exception.JudgeException;
+import com.shodhai.contest.model.Submission.Language;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PreDestroy;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
 public class DockerExecutor {
     
+    private static final int ERROR_LIMIT_BYTES = 64 * 1024;
+    private static final long STREAM_DRAIN_TIMEOUT_MS = 5000;
+    private static final String STATS_MARKER = "__judge_stats__";
+    private static final String[] HARNESS_SCRIPTS = {"batch-runner.sh", "run-measured.sh"};
+    // Verdicts of runs that may have been killed from the host or left processes behind
+    private static final Set<String> STOPPED_VERDICTS = Set.of(
+            "TIME_LIMIT_EXCEEDED", "OUTPUT_LIMIT_EXCEEDED", "CANCELLED", "SYSTEM_ERROR");
+    
     private final JudgeConfig judgeConfig;
+    private final SandboxPool sandboxPool;
+    private final CompileCache compileCache;
+    private final WorkspaceManager workspaceManager;
+    private final ConcurrencyController concurrencyController;
+    private final JudgeMetrics judgeMetrics;
+    private final Path harnessDir;
+    // Platform threads: blocking pipe reads would pin a virtual thread's carrier anyway, and
+    // there are only two pumps per running sandbox
+    private final ExecutorService pumpExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "output-pump");
+        thread.setDaemon(true);
+        return thread;
+    });
     
-    public DockerExecutor(JudgeConfig judgeConfig) {
+    public DockerExecutor(JudgeConfig judgeConfig, SandboxPool sandboxPool, CompileCache compileCache,
+            WorkspaceManager workspaceManager, ConcurrencyController concurrencyController, JudgeMetrics judgeMetrics) {
         this.judgeConfig = judgeConfig;
+        this.sandboxPool = sandboxPool;
+        this.compileCache = compileCache;
+        this.workspaceManager = workspaceManager;
+        this.concurrencyController = concurrencyController;
+        this.judgeMetrics = judgeMetrics;
         ensureTempDirectoryExists();
+        this.harnessDir = installHarness();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pumpExecutor.shutdownNow();
+    }
+    
+    // Written once per node and mounted read-only next to the test data
+    private Path installHarness() {
+        try {
+            Path directory = Files.createDirectories(Paths.get(judgeConfig.getTempDir(), "harness"));
+            for (String name : HARNESS_SCRIPTS) {
+                try (InputStream script = getClass().getResourceAsStream("/judge/" + name)) {
+                    if (script == null) {
+                        throw new JudgeException("Harness script not found on classpath: " + name);
+                    }
+                    Files.copy(script, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return directory;
+        } catch (IOException e) {
+            throw new JudgeException("Failed to install harness scripts", e);
+        }
     }
     
     private void ensureTempDirectoryExists() {
@@ -38,51 +104,293 @@ public class DockerExecutor {
         }
     }
     
-    public ExecutionResult execute(ExecutionRequest request) {
-        Path workspaceDir = null;
+    // Compiles once per submission; every test case run mounts the build read-only
+    public Build compile(CompileRequest request) {
+        Path submissionDir = null;
         try {
-            // Create workspace directory
-            workspaceDir = createWorkspace(request.getSubmissionId());
+            long allocateStart = System.nanoTime();
+            submissionDir = workspaceManager.allocate();
+            judgeMetrics.recordStage("workspace", allocateStart);
             
-            // Write code file
-            writeCodeFile(workspaceDir, request.getFileName(), request.getCode());
+            // Identical sources with the same compiler command reuse an earlier build
+            String cacheKey = null;
+            if (request.isNeedsCompilation()) {
+                cacheKey = compileCache.key(request.getLanguage().name(), request.getCompileCommand(),
+                        request.getFileName(), request.getCode());
+                Optional<Path> cachedBuild = compileCache.acquire(cacheKey);
+                if (cachedBuild.isPresent()) {
+                    log.debug("Submission {}: reusing cached build {}", request.getSubmissionId(), cacheKey);
+                    return Build.builder()
+                            .submissionId(request.getSubmissionId())
+                            .language(request.getLanguage())
+                            .workspace(submissionDir)
+                            .directory(cachedBuild.get())
+                            .cacheKey(cacheKey)
+                            .success(true)
+                            .build();
+                }
+            }
             
-            // Write input file
-            writeInputFile(workspaceDir, request.getInput());
+            Path buildDir = Files.createDirectories(submissionDir.resolve("build"));
+            
+            writeCodeFile(buildDir, request.getFileName(), request.getCode());
             
-            // Compile if needed
             if (request.isNeedsCompilation()) {
-                ExecutionResult compileResult = compile(workspaceDir, request.getCompileCommand());
+                long compileStart = System.nanoTime();
+                ExecutionResult compileResult = compile(buildDir, request.getCompileCommand());
+                judgeMetrics.recordStage("compile", compileStart);
                 if (!compileResult.isSuccess()) {
-                    return compileResult;
+                    workspaceManager.recycle(submissionDir);
+                    return Build.builder()
+                            .submissionId(request.getSubmissionId())
+                            .success(false)
+                            .failure(compileResult)
+                            .build();
                 }
+                buildDir = compileCache.store(cacheKey, buildDir);
             }
             
-            // Execute
-            return run(workspaceDir, request.getRunCommand(), request.getTimeLimitMs());
+            return Build.builder()
+                    .submissionId(request.getSubmissionId())
+                    .language(request.getLanguage())
+                    .workspace(submissionDir)
+                    .directory(buildDir)
+                    .cacheKey(cacheKey)
+                    .success(true)
+                    .build();
             
         } catch (Exception e) {
-            log.error("Execution error for submission {}", request.getSubmissionId(), e);
+            log.error("Build error for submission {}", request.getSubmissionId(), e);
+            workspaceManager.recycle(submissionDir);
+            return Build.builder()
+                    .submissionId(request.getSubmissionId())
+                    .success(false)
+                    .failure(ExecutionResult.builder()
+                            .success(false)
+                            .verdict("SYSTEM_ERROR")
+                            .errorMessage(e.getMessage())
+                            .build())
+                    .build();
+        }
+    }
+    
+    public ExecutionResult execute(Build build, ExecutionRequest request) {
+        ConcurrencyController.Slot slot;
+        long waitStart = System.nanoTime();
+        try {
+            slot = concurrencyController.acquire(request.getMemoryLimitMb());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cancelledResult();
+        }
+        judgeMetrics.recordStage("slot_wait", waitStart);
+        long runStart = System.nanoTime();
+        try {
+            ExecutionResult result = execute(build, request, slot);
+            result.setSlotWaitMs(toMillis(runStart - waitStart));
+            return result;
+        } finally {
+            concurrencyController.release(slot);
+            judgeMetrics.recordStage("run", runStart);
+        }
+    }
+    
+    private ExecutionResult execute(Build build, ExecutionRequest request, ConcurrencyController.Slot slot) {
+        // Checked after waiting for the slot, which may have taken a while
+        if (isCancelled(build, request.getTestNumber())) {
+            return cancelledResult();
+        }
+        
+        // Prefer a warm pooled container; fall back to a fresh one when none is free
+        Optional<SandboxPool.Sandbox> sandbox = sandboxPool.acquire(build.getLanguage());
+        if (sandbox.isPresent()) {
+            // The pooled container is resized and pinned for this run; if that fails it is replaced
+            if (sandboxPool.applyLimits(sandbox.get(), request.getMemoryLimitMb(), slot.getCpu())) {
+                return executeInSandbox(build, request, sandbox.get());
+            }
+            sandboxPool.release(sandbox.get(), false);
+        }
+        
+        try {
+            // The test data directory is mounted as-is, so the input is never copied
+            Path inputFile = request.getInputFile();
+            String fullCommand = measuredCommand("/harness/run-measured.sh", "/tests/" + inputFile.getFileName(),
+                    request);
+            String containerName = containerName(build, request.getTestNumber());
+            List<String> command = buildDockerCommand(containerName, List.of(
+                    build.getDirectory().toAbsolutePath() + ":/workspace:ro",
+                    inputFile.getParent().toAbsolutePath() + ":/tests:ro",
+                    harnessDir.toAbsolutePath() + ":/harness:ro"), fullCommand, request.getMemoryLimitMb() + "m",
+                    slot.getCpu());
+            return run(command, request, build, containerName);
+            
+        } catch (Exception e) {
+            log.error("Execution error for submission {}", build.getSubmissionId(), e);
             return ExecutionResult.builder()
                     .success(false)
                     .verdict("SYSTEM_ERROR")
                     .errorMessage(e.getMessage())
                     .build();
+        }
+    }
+    
+    // Runs every test case inside one container through the batch harness. Results are
+    // returned in test order and stop after the first failing run.
+    public List<ExecutionResult> executeBatch(Build build, BatchRequest request) {
+        ConcurrencyController.Slot slot;
+        long waitStart = System.nanoTime();
+        try {
+            slot = concurrencyController.acquire(request.getMemoryLimitMb());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of(cancelledResult());
+        }
+        judgeMetrics.recordStage("slot_wait", waitStart);
+        long runStart = System.nanoTime();
+        try {
+            List<ExecutionResult> results = executeBatch(build, request, slot);
+            if (!results.isEmpty()) {
+                results.get(0).setSlotWaitMs(toMillis(runStart - waitStart));
+            }
+            return results;
         } finally {
-            // Cleanup
-            if (workspaceDir != null) {
-                cleanup(workspaceDir);
+            concurrencyController.release(slot);
+            judgeMetrics.recordStage("batch", runStart);
+        }
+    }
+    
+    private List<ExecutionResult> executeBatch(Build build, BatchRequest request, ConcurrencyController.Slot slot) {
+        // Cleared with the rest of the workspace once the build is released
+        Path batchDir = build.getWorkspace().resolve("batch");
+        try {
+            Path outDir = Files.createDirectories(batchDir.resolve("out"));
+            
+            int testCount = request.getTestCount();
+            String fullCommand = String.format(Locale.ROOT, "bash /harness/batch-runner.sh %d %.3f 1 %d %s",
+                    testCount, wallLimitMs(request.getTimeLimitMs()) / 1000.0,
+                    Math.max(1, judgeConfig.getOutputLimitBytes() / 1024), request.getRunCommand());
+            String containerName = containerName(build, 0);
+            List<String> command = buildDockerCommand(containerName, List.of(
+                    build.getDirectory().toAbsolutePath() + ":/workspace:ro",
+                    request.getTestsDirectory().toAbsolutePath() + ":/tests:ro",
+                    harnessDir.toAbsolutePath() + ":/harness:ro",
+                    outDir.toAbsolutePath() + ":/out"), fullCommand, request.getMemoryLimitMb() + "m",
+                    slot.getCpu());
+            
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            
+            // Each test is bounded by the harness; this only guards against a stuck container
+            long batchLimitMs = (long) testCount * (wallLimitMs(request.getTimeLimitMs()) + 1000) + 30000;
+            if (!Processes.awaitExit(process, batchLimitMs, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                killContainer(containerName);
             }
+            
+            return readBatchResults(outDir, request.getTimeLimitMs());
+            
+        } catch (Exception e) {
+            log.error("Batch execution error for submission {}", build.getSubmissionId(), e);
+            return List.of(ExecutionResult.builder()
+                    .success(false)
+                    .verdict("SYSTEM_ERROR")
+                    .errorMessage(e.getMessage())
+                    .build());
+        }
+    }
+    
+    private List<ExecutionResult> readBatchResults(Path outDir, int timeLimitMs) throws IOException {
+        List<ExecutionResult> results = new ArrayList<>();
+        Path resultsFile = outDir.resolve("results.txt");
+        if (!Files.exists(resultsFile)) {
+            return results;
+        }
+        
+        for (String line : Files.readAllLines(resultsFile)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 5) {
+                continue;
+            }
+            String testNumber = fields[0];
+            int exitCode = Integer.parseInt(fields[1]);
+            int wallTimeMs = (int) Math.round(Double.parseDouble(fields[4]) * 1000);
+            RunStats stats = fields.length >= 8
+                    ? new RunStats(Long.parseLong(fields[5]), Long.parseLong(fields[6]), Integer.parseInt(fields[7]),
+                            wallTimeMs * 1000L)
+                    : RunStats.UNAVAILABLE;
+            
+            InputStreamSource output = new ByteArrayResource(
+                    readBytes(outDir.resolve(testNumber + ".out"), judgeConfig.getOutputLimitBytes()));
+            String error = new String(readBytes(outDir.resolve(testNumber + ".err"), ERROR_LIMIT_BYTES),
+                    StandardCharsets.UTF_8).trim();
+            results.add(toExecutionResult(exitCode, output, error, wallTimeMs, stats, timeLimitMs));
+        }
+        return results;
+    }
+    
+    private ExecutionResult executeInSandbox(Build build, ExecutionRequest request, SandboxPool.Sandbox sandbox) {
+        boolean healthy = false;
+        try {
+            sandboxPool.stage(sandbox, build.getDirectory());
+            sandboxPool.stageFile(sandbox, request.getInputFile(), "input.txt");
+            sandboxPool.stageFile(sandbox, harnessDir.resolve("run-measured.sh"), "run-measured.sh");
+            
+            // docker exec does not stop the process on the host side, so the limit is enforced inside
+            String fullCommand = measuredCommand("run-measured.sh", "input.txt", request);
+            ExecutionResult result = run(sandboxPool.buildExecCommand(sandbox, fullCommand), request, build, null);
+            healthy = !"SYSTEM_ERROR".equals(result.getVerdict());
+            // A run stopped from this side only lost its docker exec client, so the program may still be
+            // running on the core; it is killed before the slot goes to another run
+            if (result.getVerdict() != null && STOPPED_VERDICTS.contains(result.getVerdict())
+                    && !sandboxPool.killProcesses(sandbox)) {
+                healthy = false;
+            }
+            return result;
+            
+        } catch (Exception e) {
+            log.error("Sandbox execution error for submission {}", build.getSubmissionId(), e);
+            sandboxPool.killProcesses(sandbox);
+            return ExecutionResult.builder()
+                    .success(false)
+                    .verdict("SYSTEM_ERROR")
+                    .errorMessage(e.getMessage())
+                    .build();
+        } finally {
+            sandboxPool.release(sandbox, healthy);
         }
     }
     
-    private Path createWorkspace(Long submissionId) throws IOException {
-        Path workspaceDir = Paths.get(judgeConfig.getTempDir(), "submission_" + submissionId);
-        if (Files.exists(workspaceDir)) {
-            deleteDirectory(workspaceDir.toFile());
+    // Stops every run of the build with a higher test number; they can no longer change the verdict
+    public void cancelAfter(Build build, int testNumber) {
+        build.getCancelAfter().accumulateAndGet(testNumber, Math::min);
+        build.getActiveRuns().forEach((number, activeRun) -> {
+            if (number > testNumber) {
+                kill(activeRun);
+            }
+        });
+    }
+    
+    private boolean isCancelled(Build build, int testNumber) {
+        return testNumber > build.getCancelAfter().get();
+    }
+    
+    private ExecutionResult cancelledResult() {
+        return ExecutionResult.builder()
+                .success(false)
+                .verdict("CANCELLED")
+                .build();
+    }
+    
+    public void release(Build build) {
+        if (build == null) {
+            return;
+        }
+        workspaceManager.recycle(build.getWorkspace());
+        if (build.getCacheKey() != null) {
+            compileCache.release(build.getCacheKey());
         }
-        Files.createDirectories(workspaceDir);
-        return workspaceDir;
     }
     
     private void writeCodeFile(Path workspaceDir, String fileName, String code) throws IOException {
@@ -90,27 +398,33 @@ public class DockerExecutor {
         Files.writeString(codeFile, code);
     }
     
-    private void writeInputFile(Path workspaceDir, String input) throws IOException {
-        Path inputFile = workspaceDir.resolve("input.txt");
-        Files.writeString(inputFile, input != null ? input : "");
-    }
-    
-    private ExecutionResult compile(Path workspaceDir, String compileCommand) {
+    // Compilers take an execution slot too, so they do not steal cores from timed runs
+    private ExecutionResult compile(Path buildDir, String compileCommand) {
+        String containerName = "judge-compile-" + UUID.randomUUID();
+        ConcurrencyController.Slot slot = null;
         try {
-            List<String> command = buildDockerCommand(workspaceDir, compileCommand, 30000);
+            slot = concurrencyController.acquire(
+                    ConcurrencyController.toMegabytes(judgeConfig.getDocker().getMemoryLimit()));
+            List<String> command = buildDockerCommand(containerName,
+                    List.of(buildDir.toAbsolutePath() + ":/workspace"), compileCommand,
+                    judgeConfig.getDocker().getMemoryLimit(), slot.getCpu());
             
             ProcessBuilder pb = new ProcessBuilder(command);
             pb.redirectErrorStream(true);
             
             Process process = pb.start();
-            String output = readOutput(process.getInputStream());
+            OutputPump outputPump = startPump(process.getInputStream(), ERROR_LIMIT_BYTES, null);
             
-            boolean finished = process.waitFor(30, TimeUnit.SECONDS);
+            boolean finished = Processes.awaitExit(process, 30, TimeUnit.SECONDS);
+            outputPump.await(finished ? STREAM_DRAIN_TIMEOUT_MS : 0);
+            String output = outputPump.getText();
+            // A compiler that hangs says more about the host than the source, so it is not a CE
             if (!finished) {
                 process.destroyForcibly();
+                killContainer(containerName);
                 return ExecutionResult.builder()
                         .success(false)
-                        .verdict("COMPILATION_ERROR")
+                        .verdict("SYSTEM_ERROR")
                         .errorMessage("Compilation timeout")
                         .build();
             }
@@ -129,88 +443,227 @@ public class DockerExecutor {
                     .build();
             
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Compile error in {}", buildDir, e);
             return ExecutionResult.builder()
                     .success(false)
-                    .verdict("COMPILATION_ERROR")
+                    .verdict("SYSTEM_ERROR")
                     .errorMessage(e.getMessage())
                     .build();
+        } finally {
+            if (slot != null) {
+                concurrencyController.release(slot);
+            }
         }
     }
     
-    private ExecutionResult run(Path workspaceDir, String runCommand, int timeLimitMs) {
+    private ExecutionResult run(List<String> command, ExecutionRequest request, Build build, String containerName) {
+        int testNumber = request.getTestNumber();
         long startTime = System.currentTimeMillis();
         
         try {
-            String fullCommand = runCommand + " < input.txt";
-            List<String> command = buildDockerCommand(workspaceDir, fullCommand, timeLimitMs);
-            
             ProcessBuilder pb = new ProcessBuilder(command);
             pb.redirectErrorStream(false);
             
             Process process = pb.start();
+            ActiveRun activeRun = new ActiveRun(process, containerName);
+            build.getActiveRuns().put(testNumber, activeRun);
             
-            // Read output and error in separate threads
-            String output = readOutput(process.getInputStream());
-            String error = readOutput(process.getErrorStream());
-            
-            boolean finished = process.waitFor(timeLimitMs + 1000, TimeUnit.MILLISECONDS);
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            if (!finished) {
-                process.destroyForcibly();
-                return ExecutionResult.builder()
-                        .success(false)
-                        .verdict("TIME_LIMIT_EXCEEDED")
-                        .executionTimeMs((int) executionTime)
-                        .build();
-            }
-            
-            int exitCode = process.exitValue();
-            
-            if (exitCode == 137) {
-                return ExecutionResult.builder()
-                        .success(false)
-                        .verdict("MEMORY_LIMIT_EXCEEDED")
-                        .executionTimeMs((int) executionTime)
-                        .build();
-            }
-            
-            if (exitCode != 0) {
-                return ExecutionResult.builder()
-                        .success(false)
-                        .verdict("RUNTIME_ERROR")
-                        .errorMessage(error)
-                        .executionTimeMs((int) executionTime)
-                        .build();
+            try {
+                // A cancellation may have raced with the start of this run
+                if (isCancelled(build, testNumber)) {
+                    kill(activeRun);
+                }
+                
+                // Both streams are drained concurrently so neither pipe can fill up and stall the run.
+                // Stdout past the output limit kills the sandbox straight away.
+                OutputPump stdout = startPump(process.getInputStream(), judgeConfig.getOutputLimitBytes(),
+                        () -> kill(activeRun));
+                OutputPump stderr = startPump(process.getErrorStream(), ERROR_LIMIT_BYTES, null);
+                
+                // Watchdog: the program itself is stopped at the limit inside the container, this
+                // only allows for container startup before the whole sandbox is killed
+                boolean finished = Processes.awaitExit(process,
+                        wallLimitMs(request.getTimeLimitMs()) + judgeConfig.getDocker().getStartupGraceMs(),
+                        TimeUnit.MILLISECONDS);
+                long executionTime = System.currentTimeMillis() - startTime;
+                if (!finished) {
+                    kill(activeRun);
+                }
+                stdout.await(STREAM_DRAIN_TIMEOUT_MS);
+                stderr.await(STREAM_DRAIN_TIMEOUT_MS);
+                
+                if (isCancelled(build, testNumber)) {
+                    kill(activeRun);
+                    return cancelledResult();
+                }
+                
+                if (stdout.isLimitExceeded()) {
+                    return ExecutionResult.builder()
+                            .success(false)
+                            .verdict("OUTPUT_LIMIT_EXCEEDED")
+                            .executionTimeMs((int) executionTime)
+                            .build();
+                }
+                
+                if (!finished) {
+                    return ExecutionResult.builder()
+                            .success(false)
+                            .verdict("TIME_LIMIT_EXCEEDED")
+                            .executionTimeMs((int) executionTime)
+                            .build();
+                }
+                
+                InputStreamSource output = stdout.getOutput();
+                String error = stderr.getText();
+                RunStats stats = RunStats.UNAVAILABLE;
+                int statsLine = error.lastIndexOf(STATS_MARKER);
+                if (statsLine >= 0) {
+                    stats = RunStats.parse(error.substring(statsLine + STATS_MARKER.length()));
+                    error = error.substring(0, statsLine).trim();
+                }
+                return toExecutionResult(process.exitValue(), output, error, (int) executionTime, stats,
+                        request.getTimeLimitMs());
+            } finally {
+                build.getActiveRuns().remove(testNumber, activeRun);
             }
             
-            return ExecutionResult.builder()
-                    .success(true)
-                    .output(output)
-                    .executionTimeMs((int) executionTime)
-                    .build();
-            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cancelledResult();
         } catch (Exception e) {
+            // The sandbox could not be run or read, which says nothing about the program
+            log.error("Run error for submission {}", build.getSubmissionId(), e);
             long executionTime = System.currentTimeMillis() - startTime;
             return ExecutionResult.builder()
                     .success(false)
-                    .verdict("RUNTIME_ERROR")
+                    .verdict("SYSTEM_ERROR")
                     .errorMessage(e.getMessage())
                     .executionTimeMs((int) executionTime)
                     .build();
         }
     }
     
-    private List<String> buildDockerCommand(Path workspaceDir, String command, int timeLimitMs) {
+    private void kill(ActiveRun activeRun) {
+        activeRun.getProcess().destroyForcibly();
+        if (activeRun.getContainerName() != null) {
+            killContainer(activeRun.getContainerName());
+        }
+    }
+    
+    // Killing the docker client does not stop the container, so stop it by name
+    private void killContainer(String containerName) {
+        try {
+            new ProcessBuilder("docker", "kill", containerName)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            log.warn("Failed to kill container {}: {}", containerName, e.getMessage());
+        }
+    }
+    
+    private String containerName(Build build, int testNumber) {
+        return "judge-" + build.getSubmissionId() + "-" + testNumber + "-"
+                + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    // Verdicts use the cgroup accounting when the harness could read it: CPU time against the
+    // limit, and the OOM killer rather than exit code 137 for memory
+    ExecutionResult toExecutionResult(int exitCode, InputStreamSource output, String error,
+            int wallTimeMs, RunStats stats, int timeLimitMs) {
+        if (stats.getCpuUsec() >= 0 && stats.getWallUsec() >= 0) {
+            concurrencyController.recordRun(stats.getCpuUsec(), stats.getWallUsec());
+        }
+        int executionTimeMs = stats.getCpuUsec() >= 0 ? (int) (stats.getCpuUsec() / 1000) : wallTimeMs;
+        Integer memoryUsedMb = stats.getPeakMemoryBytes() >= 0
+                ? (int) ((stats.getPeakMemoryBytes() + 1024 * 1024 - 1) / (1024 * 1024))
+                : null;
+        
+        if (stats.getOomKills() > 0) {
+            return failure("MEMORY_LIMIT_EXCEEDED", executionTimeMs, memoryUsedMb);
+        }
+        
+        // 124 is reported by the in-container timeout wrapper once the wall-clock allowance runs out;
+        // within that allowance the verdict is decided on CPU time against the limit
+        if (exitCode == 124 || (stats.getCpuUsec() >= 0 && executionTimeMs > timeLimitMs)) {
+            return failure("TIME_LIMIT_EXCEEDED", executionTimeMs, memoryUsedMb);
+        }
+        
+        // 153 is SIGXFSZ from the harness's file size limit
+        if (exitCode == 153) {
+            return failure("OUTPUT_LIMIT_EXCEEDED", executionTimeMs, memoryUsedMb);
+        }
+        
+        // SIGKILL without an OOM kill comes from timeout -k; without cgroup data assume the OOM killer
+        if (exitCode == 137) {
+            return failure(stats.getOomKills() == 0 ? "TIME_LIMIT_EXCEEDED" : "MEMORY_LIMIT_EXCEEDED",
+                    executionTimeMs, memoryUsedMb);
+        }
+        
+        if (exitCode != 0) {
+            return ExecutionResult.builder()
+                    .success(false)
+                    .verdict("RUNTIME_ERROR")
+                    .errorMessage(error)
+                    .executionTimeMs(executionTimeMs)
+                    .memoryUsedMb(memoryUsedMb)
+                    .build();
+        }
+        
+        return ExecutionResult.builder()
+                .success(true)
+                .output(output)
+                .executionTimeMs(executionTimeMs)
+                .memoryUsedMb(memoryUsedMb)
+                .build();
+    }
+    
+    private ExecutionResult failure(String verdict, int executionTimeMs, Integer memoryUsedMb) {
+        return ExecutionResult.builder()
+                .success(false)
+                .verdict(verdict)
+                .executionTimeMs(executionTimeMs)
+                .memoryUsedMb(memoryUsedMb)
+                .build();
+    }
+    
+    private static int toMillis(long nanos) {
+        return (int) (nanos / 1_000_000);
+    }
+    
+    // Wall-clock allowance for a run, a multiple of the CPU time limit
+    private long wallLimitMs(int timeLimitMs) {
+        return (long) Math.ceil(timeLimitMs * judgeConfig.getDocker().getWallTimeFactor());
+    }
+    
+    private String measuredCommand(String harness, String inputFile, ExecutionRequest request) {
+        return String.format(Locale.ROOT, "bash %s %.3f %d %s %s", harness,
+                wallLimitMs(request.getTimeLimitMs()) / 1000.0,
+                Math.max(1, judgeConfig.getOutputLimitBytes() / 1024), inputFile, request.getRunCommand());
+    }
+    
+    private List<String> buildDockerCommand(String containerName, List<String> volumes, String command,
+            String memoryLimit, int cpu) {
         List<String> dockerCommand = new ArrayList<>();
         dockerCommand.add("docker");
         dockerCommand.add("run");
         dockerCommand.add("--rm");
+        dockerCommand.add("--name=" + containerName);
         dockerCommand.add("--network=" + judgeConfig.getDocker().getNetworkMode());
-        dockerCommand.add("--memory=" + judgeConfig.getDocker().getMemoryLimit());
+        // Swap is capped at the memory limit so a run cannot page its way past it
+        dockerCommand.add("--memory=" + memoryLimit);
+        dockerCommand.add("--memory-swap=" + memoryLimit);
         dockerCommand.add("--cpus=" + judgeConfig.getDocker().getCpuLimit());
-        dockerCommand.add("-v");
-        dockerCommand.add(workspaceDir.toAbsolutePath() + ":/workspace");
+        if (cpu >= 0) {
+            dockerCommand.add("--cpuset-cpus=" + cpu);
+        }
+        for (String volume : volumes) {
+            dockerCommand.add("-v");
+            dockerCommand.add(volume);
+        }
         dockerCommand.add("-w");
         dockerCommand.add("/workspace");
         dockerCommand.add(judgeConfig.getDocker().getImage());
@@ -221,53 +674,80 @@ public class DockerExecutor {
         return dockerCommand;
     }
     
-    private String readOutput(InputStream inputStream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-            return output.toString().trim();
-        }
+    private OutputPump startPump(InputStream stream, int limitBytes, Runnable onLimitExceeded) {
+        OutputPump pump = new OutputPump(stream, limitBytes, onLimitExceeded);
+        pumpExecutor.execute(pump);
+        return pump;
     }
     
-    private void cleanup(Path workspaceDir) {
-        try {
-            deleteDirectory(workspaceDir.toFile());
-        } catch (Exception e) {
-            log.error("Failed to cleanup workspace: {}", workspaceDir, e);
+    private byte[] readBytes(Path file, int limitBytes) throws IOException {
+        if (!Files.exists(file)) {
+            return new byte[0];
         }
-    }
-    
-    private void deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-            directory.delete();
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.readNBytes(limitBytes);
         }
     }
     
     @Data
     @Builder
     @AllArgsConstructor
-    public static class ExecutionRequest {
+    public static class CompileRequest {
         private Long submissionId;
+        private Language language;
         private String code;
         private String fileName;
-        private String input;
         private boolean needsCompilation;
         private String compileCommand;
+    }
+    
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class Build {
+        private Long submissionId;
+        private Language language;
+        // Per-submission scratch space; the build itself may live in the compile cache
+        private Path workspace;
+        private Path directory;
+        private String cacheKey;
+        private boolean success;
+        private ExecutionResult failure;
+        // In-flight runs by test number, so later tests can be stopped after a failure
+        @Builder.Default
+        private Map<Integer, ActiveRun> activeRuns = new ConcurrentHashMap<>();
+        @Builder.Default
+        private AtomicInteger cancelAfter = new AtomicInteger(Integer.MAX_VALUE);
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class ActiveRun {
+        private Process process;
+        private String containerName;
+    }
+    
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class ExecutionRequest {
+        private int testNumber;
+        private Path inputFile;
+        private String runCommand;
+        private int timeLimitMs;
+        private int memoryLimitMb;
+    }
+    
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class BatchRequest {
+        // Holds <n>.in for n = 1..testCount
+        private Path testsDirectory;
+        private int testCount;
         private String runCommand;
         private int timeLimitMs;
+        private int memoryLimitMb;
     }
     
     @Data
@@ -275,10 +755,41 @@ public class DockerExecutor {
     @AllArgsConstructor
     public static class ExecutionResult {
         private boolean success;
-        private String output;
+        private InputStreamSource output;
         private String verdict;
         private String errorMessage;
+        // CPU time when cgroup accounting is available, wall time otherwise
         private Integer executionTimeMs;
+        private Integer memoryUsedMb;
+        // Time spent waiting for an execution slot; on the first result only for batch runs
+        private Integer slotWaitMs;
+    }
+    
+    // cgroup v2 accounting for one run as reported by the harness; -1 means unavailable
+    @Data
+    @AllArgsConstructor
+    static class RunStats {
+        static final RunStats UNAVAILABLE = new RunStats(-1, -1, -1, -1);
+        
+        private long cpuUsec;
+        private long peakMemoryBytes;
+        private int oomKills;
+        // Measured inside the sandbox, so container startup is not included
+        private long wallUsec;
+        
+        // Parses "<exit-code> <cpu-usec> <peak-memory-bytes> <oom-kills> [<wall-usec>]"
+        static RunStats parse(String line) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 4) {
+                return UNAVAILABLE;
+            }
+            try {
+                return new RunStats(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                        Integer.parseInt(fields[3]), fields.length > 4 ? Long.parseLong(fields[4]) : -1);
+            } catch (NumberFormatException e) {
+                return UNAVAILABLE;
+            }
+        }
     }
 }
 
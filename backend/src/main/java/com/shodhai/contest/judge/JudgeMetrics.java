@@ -0,0 +1,135 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.model.JudgeJob;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Judge pipeline meters, exported at /actuator/prometheus:
+//   judge.queue.depth{class}            jobs waiting, live and background (rejudge), across all nodes
+//   judge.queue.wait{class}             enqueue to first claim
+//   judge.stage.duration{stage}         workspace, compile, slot_wait, run, batch, validate, save
+//   judge.verdicts{language,verdict}    finished submissions, verdict cache hits included
+//   judge.sandboxes.{active,limit,waiting}, judge.worker.utilization (active / limit)
+//   judge.jobs.in_flight                jobs leased by this node
+//   judge.cache.{compile,verdict}{result}, judge.cache.{compile,verdict}.size
+@Component
+@Slf4j
+public class JudgeMetrics {
+    
+    private final MeterRegistry registry;
+    private final JudgeJobRepository judgeJobRepository;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> verdictCounters = new ConcurrentHashMap<>();
+    private final Timer liveWait;
+    private final Timer backgroundWait;
+    // Refreshed on a schedule rather than queried on every scrape
+    private final AtomicLong liveQueued = new AtomicLong();
+    private final AtomicLong backgroundQueued = new AtomicLong();
+    
+    public JudgeMetrics(MeterRegistry registry, JudgeConfig judgeConfig, JudgeJobRepository judgeJobRepository,
+            ConcurrencyController concurrencyController, CompileCache compileCache, VerdictCache verdictCache) {
+        this.registry = registry;
+        this.judgeJobRepository = judgeJobRepository;
+        this.liveWait = waitTimer("live");
+        this.backgroundWait = waitTimer("background");
+        
+        Gauge.builder("judge.queue.depth", liveQueued, AtomicLong::get)
+                .tag("class", "live")
+                .register(registry);
+        Gauge.builder("judge.queue.depth", backgroundQueued, AtomicLong::get)
+                .tag("class", "background")
+                .register(registry);
+        
+        if (judgeConfig.isJudging()) {
+            Gauge.builder("judge.sandboxes.active", concurrencyController, ConcurrencyController::getActive)
+                    .description("Sandbox runs holding an execution slot")
+                    .register(registry);
+            Gauge.builder("judge.sandboxes.limit", concurrencyController, ConcurrencyController::getLimit)
+                    .register(registry);
+            Gauge.builder("judge.sandboxes.waiting", concurrencyController, ConcurrencyController::getWaiting)
+                    .description("Runs waiting for an execution slot")
+                    .register(registry);
+            Gauge.builder("judge.worker.utilization", concurrencyController,
+                            controller -> (double) controller.getActive() / Math.max(1, controller.getLimit()))
+                    .register(registry);
+        }
+        
+        FunctionCounter.builder("judge.cache.compile", compileCache, CompileCache::getHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("judge.cache.compile", compileCache, CompileCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("judge.cache.compile.size", compileCache, CompileCache::size).register(registry);
+        FunctionCounter.builder("judge.cache.verdict", verdictCache, VerdictCache::getHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("judge.cache.verdict", verdictCache, VerdictCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("judge.cache.verdict.size", verdictCache, VerdictCache::size).register(registry);
+    }
+    
+    // Registered by the queue itself, which cannot be injected here without a cycle
+    public void monitorInFlight(Map<?, ?> inFlight) {
+        Gauge.builder("judge.jobs.in_flight", inFlight, Map::size).register(registry);
+    }
+    
+    // Time since startNanos, taken from System.nanoTime()
+    public void recordStage(String stage, long startNanos) {
+        stageTimers.computeIfAbsent(stage, name -> Timer.builder("judge.stage.duration")
+                        .tag("stage", name)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofMinutes(2))
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordQueueWait(long waitMs, boolean background) {
+        (background ? backgroundWait : liveWait).record(Math.max(0, waitMs), TimeUnit.MILLISECONDS);
+    }
+    
+    public void recordVerdict(Submission.Language language, Submission.Status status) {
+        verdictCounters.computeIfAbsent(language + ":" + status, key -> Counter.builder("judge.verdicts")
+                        .tag("language", language.name())
+                        .tag("verdict", status.name())
+                        .register(registry))
+                .increment();
+    }
+    
+    @Scheduled(fixedDelayString = "${judge.jobs.heartbeat-interval-ms:10000}")
+    public void refreshQueueDepth() {
+        try {
+            long live = judgeJobRepository.countLiveQueued();
+            liveQueued.set(live);
+            backgroundQueued.set(judgeJobRepository.countByStatus(JudgeJob.Status.QUEUED) - live);
+        } catch (Exception e) {
+            log.warn("Failed to refresh queue depth: {}", e.getMessage());
+        }
+    }
+    
+    private Timer waitTimer(String jobClass) {
+        return Timer.builder("judge.queue.wait")
+                .tag("class", jobClass)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry);
+    }
+}
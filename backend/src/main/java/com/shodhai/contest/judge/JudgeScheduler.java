@@ -0,0 +1,40 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.model.JudgeJob;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.repository.SubmissionRepository;
+import com.shodhai.contest.repository.TestCaseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Classifies new judge jobs for the fair-share order applied when workers claim them
+// (see JudgeJobRepository.claim): who owns the job, its priority class and its cost.
+@Component
+@RequiredArgsConstructor
+public class JudgeScheduler {
+    
+    private final SubmissionRepository submissionRepository;
+    private final TestCaseRepository testCaseRepository;
+    
+    public JudgeJob newJob(Long submissionId) {
+        Submission submission = submissionRepository.findById(submissionId)
+                .orElseThrow(() -> new IllegalArgumentException("Submission not found: " + submissionId));
+        Long userId = submission.getUser().getId();
+        Long problemId = submission.getProblem().getId();
+        
+        JudgeJob job = new JudgeJob();
+        job.setSubmissionId(submissionId);
+        job.setUserId(userId);
+        job.setProblemId(problemId);
+        job.setContestId(submission.getContest().getId());
+        job.setPriority(isFirstAttempt(userId, problemId) ? JudgeJob.PRIORITY_FIRST_ATTEMPT : JudgeJob.PRIORITY_RETRY);
+        job.setEstimatedCostMs(testCaseRepository.countByProblemId(problemId)
+                * (long) submission.getProblem().getTimeLimitMs());
+        return job;
+    }
+    
+    // The new submission itself is already saved, so a first attempt counts as one
+    private boolean isFirstAttempt(Long userId, Long problemId) {
+        return submissionRepository.countByUserIdAndProblemId(userId, problemId) <= 1;
+    }
+}
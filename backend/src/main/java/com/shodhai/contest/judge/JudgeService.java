@@ -1,31 +1,54 @@
 package com.shodhai.contest.judge;
 
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.exception.JudgeException;
 import com.shodhai.contest.model.Problem;
 import com.shodhai.contest.model.Submission;
 import com.shodhai.contest.model.Submission.Status;
-import com.shodhai.contest.model.TestCase;
 import com.shodhai.contest.repository.ProblemRepository;
 import com.shodhai.contest.repository.SubmissionRepository;
+import com.shodhai.contest.repository.SubmissionTimelineRepository;
 import com.shodhai.contest.repository.TestCaseRepository;
+import com.shodhai.contest.service.ContestResultService;
+import com.shodhai.contest.service.LeaderboardService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 @Slf4j
 public class JudgeService {
     
     private final SubmissionRepository submissionRepository;
+    private final SubmissionTimelineRepository submissionTimelineRepository;
     private final ProblemRepository problemRepository;
     private final TestCaseRepository testCaseRepository;
     private final DockerExecutor dockerExecutor;
     private final LanguageStrategy languageStrategy;
     private final TestCaseValidator testCaseValidator;
+    private final VerdictCache verdictCache;
+    private final TestDataStore testDataStore;
+    private final JudgeConfig judgeConfig;
+    private final JudgeMetrics judgeMetrics;
+    private final ContestResultService contestResultService;
+    private final LeaderboardService leaderboardService;
+    private final SubmissionStatusNotifier statusNotifier;
+    private final ExecutorService testExecutor;
     
     // Lazy to avoid circular dependency with SubmissionQueue
     @Lazy
@@ -33,157 +56,464 @@ public class JudgeService {
     
     public JudgeService(
             SubmissionRepository submissionRepository,
+            SubmissionTimelineRepository submissionTimelineRepository,
             ProblemRepository problemRepository,
             TestCaseRepository testCaseRepository,
             DockerExecutor dockerExecutor,
             LanguageStrategy languageStrategy,
             TestCaseValidator testCaseValidator,
+            VerdictCache verdictCache,
+            TestDataStore testDataStore,
+            JudgeConfig judgeConfig,
+            JudgeMetrics judgeMetrics,
+            ContestResultService contestResultService,
+            LeaderboardService leaderboardService,
+            SubmissionStatusNotifier statusNotifier,
             @Lazy SubmissionQueue submissionQueue) {
         this.submissionRepository = submissionRepository;
+        this.submissionTimelineRepository = submissionTimelineRepository;
         this.problemRepository = problemRepository;
         this.testCaseRepository = testCaseRepository;
         this.dockerExecutor = dockerExecutor;
         this.languageStrategy = languageStrategy;
         this.testCaseValidator = testCaseValidator;
+        this.verdictCache = verdictCache;
+        this.testDataStore = testDataStore;
+        this.judgeConfig = judgeConfig;
+        this.judgeMetrics = judgeMetrics;
+        this.contestResultService = contestResultService;
+        this.leaderboardService = leaderboardService;
+        this.statusNotifier = statusNotifier;
         this.submissionQueue = submissionQueue;
+        // One virtual thread per test; how many actually run is limited by the execution slots
+        this.testExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        testExecutor.shutdownNow();
     }
     
     public void queueSubmission(Long submissionId) {
-        boolean added = submissionQueue.addSubmission(submissionId);
-        if (!added) {
-            updateSubmissionStatus(submissionId, Status.SYSTEM_ERROR, "Queue is full");
-        }
+        submissionQueue.addSubmission(submissionId);
     }
     
-    @Transactional
-    public void processSubmission(Long submissionId) {
+    // Deliberately not @Transactional: a transaction around judging would hold a pooled JDBC
+    // connection for the whole run. Each read and save below takes one only briefly.
+    // The timeline is stored once the attempt ends, whatever the outcome
+    public void processSubmission(Long submissionId, JudgeTimeline timeline) {
+        timeline.mark("started", System.currentTimeMillis());
+        boolean rejudge = false;
         try {
             Submission submission = submissionRepository.findById(submissionId)
                     .orElseThrow(() -> new RuntimeException("Submission not found: " + submissionId));
             
-            // Update status to RUNNING
-            submission.setStatus(Status.RUNNING);
-            submissionRepository.save(submission);
+            // A rejudge keeps showing the previous verdict until the new one is in, so standings do
+            // not drop the submission meanwhile
+            rejudge = submission.getStatus() != Status.PENDING && submission.getStatus() != Status.RUNNING;
+            if (!rejudge) {
+                submission.setStatus(Status.RUNNING);
+                submissionRepository.save(submission);
+            }
             
-            // Get problem and test cases
-            Problem problem = submission.getProblem();
-            List<TestCase> testCases = testCaseRepository.findByProblemIdOrderByDisplayOrderAsc(problem.getId());
+            // Loaded directly, the lazy association cannot be initialized outside a transaction
+            Problem problem = problemRepository.findById(submission.getProblem().getId())
+                    .orElseThrow(() -> new RuntimeException("Problem not found for submission: " + submissionId));
             
-            if (testCases.isEmpty()) {
-                updateSubmissionStatus(submissionId, Status.SYSTEM_ERROR, "No test cases found");
+            // A byte-identical resubmit against the same test set needs no execution; a rejudge is
+            // run again, since it may be repairing a verdict that got cached
+            String testSetVersion = testCaseRepository.findTestSetVersion(problem.getId());
+            String verdictKey = verdictCache.key(submission, problem, testSetVersion);
+            Optional<VerdictCache.CachedVerdict> cachedVerdict = rejudge ? Optional.empty() : verdictCache.get(verdictKey);
+            if (cachedVerdict.isPresent()) {
+                timeline.mark("verdict_cache", System.currentTimeMillis());
+                applyCachedVerdict(submission, cachedVerdict.get());
+                save(submission, timeline, false);
+                log.info("Submission {} completed from verdict cache with verdict: {}",
+                        submissionId, submission.getStatus());
                 return;
             }
             
-            // Get language configuration
-            LanguageStrategy.LanguageConfig langConfig = languageStrategy.getConfig(submission.getLanguage());
+            // Test data is read from this node's file copy of the version, not from the database
+            TestDataStore.TestSet testSet = testDataStore.acquire(problem.getId(), testSetVersion);
+            try {
+                judge(submission, problem, testSet, verdictKey, timeline, rejudge);
+            } finally {
+                testDataStore.release(testSet);
+            }
             
-            // Run all test cases
-            int totalScore = 0;
-            int passedCount = 0;
-            int maxExecutionTime = 0;
-            String finalVerdict = "ACCEPTED";
+        } catch (Exception e) {
+            log.error("Error processing submission {}", submissionId, e);
+            // A rejudge keeps the verdict it would replace; the job is handed back for another attempt
+            if (rejudge) {
+                throw e instanceof JudgeException judgeException
+                        ? judgeException
+                        : new JudgeException("Rejudge of submission " + submissionId + " failed", e);
+            }
+            updateSubmissionStatus(submissionId, Status.SYSTEM_ERROR, e.getMessage(), timeline);
+        } finally {
+            saveTimeline(submissionId, timeline);
+        }
+    }
+    
+    // A job that ran out of attempts; a submission that already has a verdict, such as one being
+    // rejudged, keeps it
+    public void failExhausted(Long submissionId) {
+        try {
+            Submission submission = submissionRepository.findById(submissionId).orElse(null);
+            if (submission == null
+                    || (submission.getStatus() != Status.PENDING && submission.getStatus() != Status.RUNNING)) {
+                return;
+            }
+            submission.setStatus(Status.SYSTEM_ERROR);
+            submission.setErrorMessage("Judging did not complete");
+            submission.setCompletedAt(LocalDateTime.now());
+            // Nothing was judged in this attempt, so its timeline is not stored
+            save(submission, JudgeTimeline.claimed(0, 0), false);
+        } catch (Exception e) {
+            log.error("Failed to mark exhausted submission {} as failed", submissionId, e);
+        }
+    }
+    
+    private void judge(Submission submission, Problem problem, TestDataStore.TestSet testSet, String verdictKey,
+            JudgeTimeline timeline, boolean rejudge) throws InterruptedException {
+        Long submissionId = submission.getId();
+        List<TestDataStore.TestData> testCases = testSet.getTests();
+        if (testCases.isEmpty()) {
+            throw new JudgeException("No test cases found");
+        }
+        
+        // A rejudge keeps showing the previous verdict, so only its new verdict is announced
+        SubmissionStatusNotifier.Progress progress = statusNotifier.running(submission, testCases.size(), !rejudge);
+        
+        // Get language configuration
+        LanguageStrategy.LanguageConfig langConfig = languageStrategy.getConfig(submission.getLanguage());
+        
+        // Compile once; every test case runs against the same build
+        long compileStart = System.currentTimeMillis();
+        DockerExecutor.Build build = dockerExecutor.compile(DockerExecutor.CompileRequest.builder()
+                .submissionId(submissionId)
+                .language(submission.getLanguage())
+                .code(submission.getCode())
+                .fileName(langConfig.getFileName())
+                .needsCompilation(langConfig.isNeedsCompilation())
+                .compileCommand(langConfig.getCompileCommand())
+                .build());
+        timeline.span("compile", null, compileStart, null);
+        
+        // Run all test cases
+        int totalScore = 0;
+        int passedCount = 0;
+        int maxExecutionTime = 0;
+        Integer maxMemoryUsed = null;
+        String finalVerdict = "ACCEPTED";
+        
+        try {
+            if (!build.isSuccess()) {
+                finalVerdict = build.getFailure().getVerdict();
+                submission.setErrorMessage(build.getFailure().getErrorMessage());
+            }
             
-            for (int i = 0; i < testCases.size(); i++) {
-                TestCase testCase = testCases.get(i);
-                
-                log.info("Submission {}: Running test case {}/{}", submissionId, i + 1, testCases.size());
-                
-                // Execute code with test case input
-                DockerExecutor.ExecutionRequest request = DockerExecutor.ExecutionRequest.builder()
-                        .submissionId(submissionId)
-                        .code(submission.getCode())
-                        .fileName(langConfig.getFileName())
-                        .input(testCase.getInput())
-                        .needsCompilation(langConfig.isNeedsCompilation())
-                        .compileCommand(langConfig.getCompileCommand())
-                        .runCommand(langConfig.getRunCommand())
-                        .timeLimitMs(problem.getTimeLimitMs())
-                        .build();
-                
-                DockerExecutor.ExecutionResult execResult = dockerExecutor.execute(request);
+            // Outcomes arrive in test order and end at the first failing test
+            List<TestOutcome> outcomes = build.isSuccess()
+                    ? runTestCases(submissionId, build, problem, testSet, langConfig, timeline, progress)
+                    : List.of();
+            
+            for (int i = 0; i < outcomes.size(); i++) {
+                TestOutcome outcome = outcomes.get(i);
+                DockerExecutor.ExecutionResult execResult = outcome.getExecution();
                 
                 // Check execution result
                 if (!execResult.isSuccess()) {
-                    // Execution failed (TLE, MLE, RE, CE)
+                    // Execution failed (TLE, MLE, RE)
                     finalVerdict = execResult.getVerdict();
                     submission.setErrorMessage(execResult.getErrorMessage());
                     break;
                 }
                 
-                // Validate output
-                TestCaseValidator.ValidationResult validationResult = 
-                        testCaseValidator.validate(execResult.getOutput(), testCase.getExpectedOutput());
-                
-                if (validationResult.isPassed()) {
-                    totalScore += testCase.getPoints();
+                if (outcome.isPassed()) {
+                    totalScore += testCases.get(i).getPoints();
                     passedCount++;
                     maxExecutionTime = Math.max(maxExecutionTime, execResult.getExecutionTimeMs());
+                    if (execResult.getMemoryUsedMb() != null) {
+                        maxMemoryUsed = maxMemoryUsed == null
+                                ? execResult.getMemoryUsedMb()
+                                : Math.max(maxMemoryUsed, execResult.getMemoryUsedMb());
+                    }
                 } else {
                     finalVerdict = "WRONG_ANSWER";
                     break;
                 }
             }
+        } finally {
+            dockerExecutor.release(build);
+        }
+        
+        // Update submission with results
+        submission.setScore(totalScore);
+        submission.setTestCasesPassed(passedCount);
+        submission.setTotalTestCases(testCases.size());
+        submission.setExecutionTimeMs(maxExecutionTime);
+        submission.setMemoryUsedMb(maxMemoryUsed);
+        submission.setCompletedAt(LocalDateTime.now());
+        
+        // Set final status
+        if ("ACCEPTED".equals(finalVerdict) && passedCount == testCases.size()) {
+            submission.setStatus(Status.ACCEPTED);
+            submission.setResult("AC");
+        } else {
+            switch (finalVerdict) {
+                case "WRONG_ANSWER":
+                    submission.setStatus(Status.WRONG_ANSWER);
+                    submission.setResult("WA");
+                    break;
+                case "TIME_LIMIT_EXCEEDED":
+                    submission.setStatus(Status.TIME_LIMIT_EXCEEDED);
+                    submission.setResult("TLE");
+                    break;
+                case "MEMORY_LIMIT_EXCEEDED":
+                    submission.setStatus(Status.MEMORY_LIMIT_EXCEEDED);
+                    submission.setResult("MLE");
+                    break;
+                case "OUTPUT_LIMIT_EXCEEDED":
+                    submission.setStatus(Status.OUTPUT_LIMIT_EXCEEDED);
+                    submission.setResult("OLE");
+                    break;
+                case "RUNTIME_ERROR":
+                    submission.setStatus(Status.RUNTIME_ERROR);
+                    submission.setResult("RE");
+                    break;
+                case "COMPILATION_ERROR":
+                    submission.setStatus(Status.COMPILATION_ERROR);
+                    submission.setResult("CE");
+                    break;
+                default:
+                    submission.setStatus(Status.SYSTEM_ERROR);
+                    submission.setResult("SE");
+            }
+        }
+        
+        // A judge-side failure says nothing about the code, so it must not replace an earlier verdict
+        if (rejudge && submission.getStatus() == Status.SYSTEM_ERROR) {
+            throw new JudgeException("Rejudge of submission " + submissionId + " ended in a system error: "
+                    + submission.getErrorMessage());
+        }
+        save(submission, timeline, rejudge);
+        verdictCache.put(verdictKey, submission);
+        log.info("Submission {} completed with verdict: {}, score: {}/{}", 
+                submissionId, submission.getStatus(), passedCount, testCases.size());
+    }
+    
+    private List<TestOutcome> runTestCases(Long submissionId, DockerExecutor.Build build, Problem problem,
+            TestDataStore.TestSet testSet, LanguageStrategy.LanguageConfig langConfig, JudgeTimeline timeline,
+            SubmissionStatusNotifier.Progress progress) throws InterruptedException {
+        List<TestDataStore.TestData> testCases = testSet.getTests();
+        // Batch mode runs every test in one container up front
+        boolean batchExecution = problem.getBatchExecution() != null
+                ? problem.getBatchExecution()
+                : langConfig.isBatchExecution();
+        if (batchExecution) {
+            log.info("Submission {}: Running {} test cases in batch", submissionId, testCases.size());
+            long batchStart = System.currentTimeMillis();
+            List<DockerExecutor.ExecutionResult> batchResults = dockerExecutor.executeBatch(build,
+                    DockerExecutor.BatchRequest.builder()
+                            .testsDirectory(testSet.getDirectory())
+                            .testCount(testCases.size())
+                            .runCommand(langConfig.getRunCommand())
+                            .timeLimitMs(problem.getTimeLimitMs())
+                            .memoryLimitMb(problem.getMemoryLimitMb())
+                            .build());
+            recordRun(timeline, "batch", null, batchStart, batchResults.isEmpty() ? null : batchResults.get(0));
             
-            // Update submission with results
-            submission.setScore(totalScore);
-            submission.setTestCasesPassed(passedCount);
-            submission.setTotalTestCases(testCases.size());
-            submission.setExecutionTimeMs(maxExecutionTime);
-            submission.setCompletedAt(LocalDateTime.now());
-            
-            // Set final status
-            if ("ACCEPTED".equals(finalVerdict) && passedCount == testCases.size()) {
-                submission.setStatus(Status.ACCEPTED);
-                submission.setResult("AC");
-            } else {
-                switch (finalVerdict) {
-                    case "WRONG_ANSWER":
-                        submission.setStatus(Status.WRONG_ANSWER);
-                        submission.setResult("WA");
-                        break;
-                    case "TIME_LIMIT_EXCEEDED":
-                        submission.setStatus(Status.TIME_LIMIT_EXCEEDED);
-                        submission.setResult("TLE");
-                        break;
-                    case "MEMORY_LIMIT_EXCEEDED":
-                        submission.setStatus(Status.MEMORY_LIMIT_EXCEEDED);
-                        submission.setResult("MLE");
-                        break;
-                    case "RUNTIME_ERROR":
-                        submission.setStatus(Status.RUNTIME_ERROR);
-                        submission.setResult("RE");
-                        break;
-                    case "COMPILATION_ERROR":
-                        submission.setStatus(Status.COMPILATION_ERROR);
-                        submission.setResult("CE");
-                        break;
-                    default:
-                        submission.setStatus(Status.SYSTEM_ERROR);
-                        submission.setResult("SE");
+            List<TestOutcome> outcomes = new ArrayList<>();
+            for (int i = 0; i < testCases.size(); i++) {
+                DockerExecutor.ExecutionResult execResult = i < batchResults.size()
+                        ? batchResults.get(i)
+                        : systemError("Batch run produced no result for test case " + (i + 1));
+                // Tests of a batch share one run, so only their CPU time is known individually
+                timeline.span("test", i + 1, batchStart, 0, execResult.getExecutionTimeMs());
+                TestOutcome outcome = validate(execResult, testCases.get(i), i + 1, timeline);
+                // Results only arrive once the whole batch has run, so progress advances as they are checked
+                progress.testFinished();
+                outcomes.add(outcome);
+                if (!outcome.isPassed()) {
+                    break;
                 }
             }
-            
-            submissionRepository.save(submission);
-            log.info("Submission {} completed with verdict: {}, score: {}/{}", 
-                    submissionId, submission.getStatus(), passedCount, testCases.size());
-            
-        } catch (Exception e) {
-            log.error("Error processing submission {}", submissionId, e);
-            updateSubmissionStatus(submissionId, Status.SYSTEM_ERROR, e.getMessage());
+            return outcomes;
+        }
+        
+        if (judgeConfig.getParallelTests()) {
+            return runTestCasesInParallel(submissionId, build, problem, testCases, langConfig, timeline, progress);
         }
+        
+        List<TestOutcome> outcomes = new ArrayList<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            log.info("Submission {}: Running test case {}/{}", submissionId, i + 1, testCases.size());
+            TestOutcome outcome = runTestCase(build, problem, testCases.get(i), i + 1, langConfig, timeline, progress);
+            outcomes.add(outcome);
+            if (!outcome.isPassed()) {
+                break;
+            }
+        }
+        return outcomes;
     }
     
-    private void updateSubmissionStatus(Long submissionId, Status status, String errorMessage) {
+    private List<TestOutcome> runTestCasesInParallel(Long submissionId, DockerExecutor.Build build, Problem problem,
+            List<TestDataStore.TestData> testCases, LanguageStrategy.LanguageConfig langConfig, JudgeTimeline timeline,
+            SubmissionStatusNotifier.Progress progress) throws InterruptedException {
+        log.info("Submission {}: Running {} test cases in parallel", submissionId, testCases.size());
+        
+        List<Future<TestOutcome>> futures = new ArrayList<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            final int testNumber = i + 1;
+            final TestDataStore.TestData testCase = testCases.get(i);
+            futures.add(testExecutor.submit(() -> {
+                TestOutcome outcome = runTestCase(build, problem, testCase, testNumber, langConfig, timeline,
+                        progress);
+                if (!outcome.isPassed()) {
+                    // Later tests can no longer change the verdict
+                    dockerExecutor.cancelAfter(build, testNumber);
+                }
+                return outcome;
+            }));
+        }
+        
+        List<TestOutcome> outcomes = new ArrayList<>();
+        try {
+            for (Future<TestOutcome> future : futures) {
+                TestOutcome outcome;
+                try {
+                    outcome = future.get();
+                } catch (ExecutionException e) {
+                    outcome = new TestOutcome(systemError(e.getCause().getMessage()), false);
+                }
+                outcomes.add(outcome);
+                if (!outcome.isPassed()) {
+                    break;
+                }
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return outcomes;
+    }
+    
+    private TestOutcome runTestCase(DockerExecutor.Build build, Problem problem, TestDataStore.TestData testCase,
+            int testNumber, LanguageStrategy.LanguageConfig langConfig, JudgeTimeline timeline,
+            SubmissionStatusNotifier.Progress progress) {
+        // Execute code with test case input
+        DockerExecutor.ExecutionRequest request = DockerExecutor.ExecutionRequest.builder()
+                .testNumber(testNumber)
+                .inputFile(testCase.getInputFile())
+                .runCommand(langConfig.getRunCommand())
+                .timeLimitMs(problem.getTimeLimitMs())
+                .memoryLimitMb(problem.getMemoryLimitMb())
+                .build();
+        
+        long runStart = System.currentTimeMillis();
+        DockerExecutor.ExecutionResult execResult = dockerExecutor.execute(build, request);
+        recordRun(timeline, "test", testNumber, runStart, execResult);
+        TestOutcome outcome = validate(execResult, testCase, testNumber, timeline);
+        progress.testFinished();
+        return outcome;
+    }
+    
+    private TestOutcome validate(DockerExecutor.ExecutionResult execResult, TestDataStore.TestData testCase,
+            int testNumber, JudgeTimeline timeline) {
+        if (!execResult.isSuccess()) {
+            return new TestOutcome(execResult, false);
+        }
+        
+        // Validate output; large answers are checked against their stored hash
+        long validateStart = System.nanoTime();
+        long validateStartMillis = System.currentTimeMillis();
+        TestCaseValidator.ValidationResult validationResult = testCase.getExpectedOutputHash() != null
+                ? testCaseValidator.validateAgainstHash(execResult.getOutput(), testCase.getExpectedOutputHash())
+                : testCaseValidator.validate(execResult.getOutput(), testDataStore.expectedOutput(testCase));
+        judgeMetrics.recordStage("validate", validateStart);
+        timeline.span("validate", testNumber, validateStartMillis, null);
+        return new TestOutcome(execResult, validationResult.isPassed());
+    }
+    
+    private void applyCachedVerdict(Submission submission, VerdictCache.CachedVerdict verdict) {
+        submission.setStatus(verdict.getStatus());
+        submission.setResult(verdict.getResult());
+        submission.setScore(verdict.getScore());
+        submission.setTestCasesPassed(verdict.getTestCasesPassed());
+        submission.setTotalTestCases(verdict.getTotalTestCases());
+        submission.setExecutionTimeMs(verdict.getExecutionTimeMs());
+        submission.setMemoryUsedMb(verdict.getMemoryUsedMb());
+        submission.setErrorMessage(verdict.getErrorMessage());
+        submission.setCompletedAt(LocalDateTime.now());
+    }
+    
+    private DockerExecutor.ExecutionResult systemError(String message) {
+        return DockerExecutor.ExecutionResult.builder()
+                .success(false)
+                .verdict("SYSTEM_ERROR")
+                .errorMessage(message)
+                .build();
+    }
+    
+    private void updateSubmissionStatus(Long submissionId, Status status, String errorMessage, JudgeTimeline timeline) {
         try {
             Submission submission = submissionRepository.findById(submissionId)
                     .orElseThrow(() -> new RuntimeException("Submission not found"));
             submission.setStatus(status);
             submission.setErrorMessage(errorMessage);
             submission.setCompletedAt(LocalDateTime.now());
-            submissionRepository.save(submission);
+            save(submission, timeline, false);
         } catch (Exception e) {
             log.error("Failed to update submission status", e);
         }
     }
+    
+    // Saves a finished submission together with the user's contest results, counts its verdict, and
+    // once that has committed updates the in-memory standings and tells the user
+    private void save(Submission submission, JudgeTimeline timeline, boolean rejudge) {
+        long saveStart = System.nanoTime();
+        long saveStartMillis = System.currentTimeMillis();
+        contestResultService.recordVerdict(submission, rejudge);
+        judgeMetrics.recordStage("save", saveStart);
+        timeline.span("persisted", null, saveStartMillis, null);
+        judgeMetrics.recordVerdict(submission.getLanguage(), submission.getStatus());
+        try {
+            leaderboardService.onVerdict(submission, rejudge);
+        } catch (Exception e) {
+            // The leaderboard catches up from the database when it is next rebuilt
+            log.warn("Failed to update standings for submission {}: {}", submission.getId(), e.getMessage());
+        }
+        statusNotifier.finished(submission);
+    }
+    
+    // A sandbox run, split into the wait for an execution slot and the run itself
+    private void recordRun(JudgeTimeline timeline, String stage, Integer testNumber, long startMillis,
+            DockerExecutor.ExecutionResult result) {
+        int slotWaitMs = result != null && result.getSlotWaitMs() != null ? result.getSlotWaitMs() : 0;
+        long durationMs = System.currentTimeMillis() - startMillis;
+        if (slotWaitMs > 0) {
+            timeline.span("slot_wait", testNumber, startMillis, slotWaitMs, null);
+        }
+        timeline.span(stage, testNumber, startMillis + slotWaitMs, Math.max(0, durationMs - slotWaitMs),
+                result != null ? result.getExecutionTimeMs() : null);
+    }
+    
+    // Losing a timeline must never fail the submission itself
+    private void saveTimeline(Long submissionId, JudgeTimeline timeline) {
+        try {
+            LocalDateTime enqueuedAt = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(timeline.getEnqueuedAtMillis()), ZoneId.systemDefault());
+            submissionTimelineRepository.upsert(submissionId, timeline.getAttempt(), enqueuedAt, timeline.encode());
+        } catch (Exception e) {
+            log.warn("Failed to save judging timeline of submission {}: {}", submissionId, e.getMessage());
+        }
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class TestOutcome {
+        private DockerExecutor.ExecutionResult execution;
+        private boolean passed;
+    }
 }
-
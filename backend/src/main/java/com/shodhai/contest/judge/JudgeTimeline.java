@@ -0,0 +1,110 @@
+package com.shodhai.contest.judge;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Stage timestamps of one judging attempt, as offsets in ms from when the submission was queued.
+// Parallel tests record into it concurrently. Stored as one short text per submission: events
+// separated by ';', each "stage,test,offset,duration,cpu" with empty fields where not applicable.
+public class JudgeTimeline {
+    
+    private final long enqueuedAtMillis;
+    private final int attempt;
+    // Lock-free, so test threads never park on it
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    
+    private JudgeTimeline(long enqueuedAtMillis, int attempt) {
+        this.enqueuedAtMillis = enqueuedAtMillis;
+        this.attempt = attempt;
+    }
+    
+    // waitMs comes from the claim and is measured on the database clock
+    public static JudgeTimeline claimed(long waitMs, int attempt) {
+        long now = System.currentTimeMillis();
+        JudgeTimeline timeline = new JudgeTimeline(now - Math.max(0, waitMs), attempt);
+        timeline.mark("enqueued", timeline.enqueuedAtMillis);
+        timeline.mark("dequeued", now);
+        return timeline;
+    }
+    
+    public void mark(String stage, long atMillis) {
+        add(new Event(stage, null, offset(atMillis), null, null));
+    }
+    
+    // A stage that started at startMillis and ends now
+    public void span(String stage, Integer test, long startMillis, Integer cpuMs) {
+        add(new Event(stage, test, offset(startMillis), System.currentTimeMillis() - startMillis, cpuMs));
+    }
+    
+    public void span(String stage, Integer test, long startMillis, long durationMs, Integer cpuMs) {
+        add(new Event(stage, test, offset(startMillis), durationMs, cpuMs));
+    }
+    
+    public long getEnqueuedAtMillis() {
+        return enqueuedAtMillis;
+    }
+    
+    public int getAttempt() {
+        return attempt;
+    }
+    
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        for (Event event : events) {
+            if (encoded.length() > 0) {
+                encoded.append(';');
+            }
+            encoded.append(event.stage).append(',')
+                    .append(event.test != null ? event.test : "").append(',')
+                    .append(event.offsetMs).append(',')
+                    .append(event.durationMs != null ? event.durationMs : "").append(',')
+                    .append(event.cpuMs != null ? event.cpuMs : "");
+        }
+        return encoded.toString();
+    }
+    
+    public static List<Event> decode(String encoded) {
+        List<Event> decoded = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return decoded;
+        }
+        for (String entry : encoded.split(";")) {
+            String[] fields = entry.split(",", -1);
+            if (fields.length < 5) {
+                continue;
+            }
+            decoded.add(new Event(fields[0], parseInt(fields[1]), Long.parseLong(fields[2]),
+                    fields[3].isEmpty() ? null : Long.parseLong(fields[3]), parseInt(fields[4])));
+        }
+        return decoded;
+    }
+    
+    private void add(Event event) {
+        events.add(event);
+    }
+    
+    private long offset(long atMillis) {
+        return atMillis - enqueuedAtMillis;
+    }
+    
+    private static Integer parseInt(String field) {
+        return field.isEmpty() ? null : Integer.parseInt(field);
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class Event {
+        private String stage;
+        // Test number for per-test stages
+        private Integer test;
+        private long offsetMs;
+        private Long durationMs;
+        // CPU time the sandbox reported for the run
+        private Integer cpuMs;
+    }
+}
@@ -24,6 +24,7 @@ public class LanguageStrategy {
                 .fileName("Main.java")
                 .compileCommand("javac Main.java")
                 .runCommand("java Main")
+                .batchExecution(false)
                 .needsCompilation(true)
                 .build());
         
@@ -33,6 +34,7 @@ public class LanguageStrategy {
                 .fileName("main.py")
                 .compileCommand(null)
                 .runCommand("python3 main.py")
+                .batchExecution(false)
                 .needsCompilation(false)
                 .build());
         
@@ -42,6 +44,7 @@ public class LanguageStrategy {
                 .fileName("main.cpp")
                 .compileCommand("g++ -o main main.cpp")
                 .runCommand("./main")
+                .batchExecution(true)
                 .needsCompilation(true)
                 .build());
         
@@ -51,6 +54,7 @@ public class LanguageStrategy {
                 .fileName("main.js")
                 .compileCommand(null)
                 .runCommand("node main.js")
+                .batchExecution(false)
                 .needsCompilation(false)
                 .build());
     }
@@ -72,6 +76,8 @@ public class LanguageStrategy {
         private String compileCommand;
         private String runCommand;
         private boolean needsCompilation;
+        // Run all test cases in one container; problems may override this
+        private boolean batchExecution;
     }
 }
 
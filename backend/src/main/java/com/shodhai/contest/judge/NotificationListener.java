@@ -0,0 +1,127 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.service.LeaderboardService;
+import com.shodhai.contest.service.SubmissionStatusStreamService;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Postgres LISTEN/NOTIFY between nodes, on one pooled connection held for as long as it listens:
+// judge_jobs wakes the dispatcher as soon as any node commits a new job, so workers on other
+// machines do not wait for their next poll; contest_verdicts keeps every node's in-memory
+// leaderboards current; submission_status carries judging progress to the node holding the
+// user's stream. Polling stays the fallback for jobs when the connection drops, and
+// leaderboards are rebuilt after a reconnect since notifications may have been missed.
+@Component
+@Slf4j
+public class NotificationListener {
+    
+    static final String JOB_CHANNEL = "judge_jobs";
+    static final String VERDICT_CHANNEL = "contest_verdicts";
+    static final String STATUS_CHANNEL = "submission_status";
+    private static final long RECONNECT_DELAY_MS = 5000;
+    
+    private final JudgeConfig judgeConfig;
+    private final DataSource dataSource;
+    private final SubmissionQueue submissionQueue;
+    private final LeaderboardService leaderboardService;
+    private final SubmissionStatusStreamService submissionStatusStreamService;
+    private final Thread listener;
+    private volatile boolean running = false;
+    
+    public NotificationListener(JudgeConfig judgeConfig, DataSource dataSource, SubmissionQueue submissionQueue,
+            LeaderboardService leaderboardService, SubmissionStatusStreamService submissionStatusStreamService) {
+        this.judgeConfig = judgeConfig;
+        this.dataSource = dataSource;
+        this.submissionQueue = submissionQueue;
+        this.leaderboardService = leaderboardService;
+        this.submissionStatusStreamService = submissionStatusStreamService;
+        this.listener = new Thread(this::listen, "notification-listener");
+        this.listener.setDaemon(true);
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listener.interrupt();
+    }
+    
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    // API-only nodes never claim jobs, so only judging nodes listen for them
+                    if (judgeConfig.isJudging()) {
+                        statement.execute("LISTEN " + JOB_CHANNEL);
+                    }
+                    statement.execute("LISTEN " + VERDICT_CHANNEL);
+                    // Users only hold status streams on nodes serving the API
+                    if (judgeConfig.isServingApi()) {
+                        statement.execute("LISTEN " + STATUS_CHANNEL);
+                    }
+                }
+                if (reconnecting) {
+                    leaderboardService.invalidateAll();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for notifications on {}{}{}", judgeConfig.isJudging() ? JOB_CHANNEL + ", " : "",
+                        VERDICT_CHANNEL, judgeConfig.isServingApi() ? ", " + STATUS_CHANNEL : "");
+                while (running) {
+                    // Also returns on timeout, so a stop is noticed within one poll interval
+                    PGNotification[] notifications = pgConnection.getNotifications(
+                            judgeConfig.getJobs().getPollIntervalMs().intValue());
+                    if (notifications != null) {
+                        dispatch(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Notification listener lost its connection, reconnecting: {}", e.getMessage());
+                    reconnecting = true;
+                    sleepQuietly(RECONNECT_DELAY_MS);
+                }
+            }
+        }
+    }
+    
+    private void dispatch(PGNotification[] notifications) {
+        boolean jobQueued = false;
+        for (PGNotification notification : notifications) {
+            if (JOB_CHANNEL.equals(notification.getName())) {
+                jobQueued = true;
+            } else if (VERDICT_CHANNEL.equals(notification.getName())) {
+                leaderboardService.applyNotification(notification.getParameter());
+            } else if (STATUS_CHANNEL.equals(notification.getName())) {
+                submissionStatusStreamService.applyNotification(notification.getParameter());
+            }
+        }
+        if (jobQueued) {
+            submissionQueue.wake();
+        }
+    }
+    
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.shodhai.contest.judge;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Drains one process stream on its own thread, keeping at most limitBytes in memory
+public class OutputPump implements Runnable {
+    
+    private final InputStream stream;
+    private final int limitBytes;
+    private final Runnable onLimitExceeded;
+    private final OutputBuffer buffer = new OutputBuffer();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean limitExceeded = false;
+    
+    public OutputPump(InputStream stream, int limitBytes, Runnable onLimitExceeded) {
+        this.stream = stream;
+        this.limitBytes = limitBytes;
+        this.onLimitExceeded = onLimitExceeded;
+    }
+    
+    @Override
+    public void run() {
+        byte[] chunk = new byte[8192];
+        try (InputStream in = stream) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                if (limitExceeded) {
+                    // Keep draining so the writer never blocks on a full pipe
+                    continue;
+                }
+                int room = limitBytes - buffer.size();
+                if (read > room) {
+                    buffer.write(chunk, 0, room);
+                    limitExceeded = true;
+                    if (onLimitExceeded != null) {
+                        onLimitExceeded.run();
+                    }
+                } else {
+                    buffer.write(chunk, 0, read);
+                }
+            }
+        } catch (IOException e) {
+            // The stream is closed when the process is killed
+        } finally {
+            finished.countDown();
+        }
+    }
+    
+    public boolean await(long timeoutMs) throws InterruptedException {
+        return finished.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+    
+    public String getText() {
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+    
+    // Reads the captured bytes in place instead of copying them
+    public InputStreamSource getOutput() {
+        return buffer::asInputStream;
+    }
+    
+    private static class OutputBuffer extends ByteArrayOutputStream {
+        synchronized InputStream asInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shodhai.contest.judge;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Process.waitFor waits on the process's monitor, which pins a virtual thread to its carrier for
+// the whole run on Java 21. onExit() is completed by the JDK's process reaper instead, so waiting
+// on it parks the virtual thread and frees the carrier.
+final class Processes {
+    
+    private Processes() {
+    }
+    
+    static boolean awaitExit(Process process, long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            process.onExit().get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return !process.isAlive();
+        }
+    }
+}
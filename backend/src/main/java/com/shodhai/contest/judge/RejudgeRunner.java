@@ -0,0 +1,199 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.dto.request.RejudgeRequest;
+import com.shodhai.contest.dto.response.RejudgeRunResponse;
+import com.shodhai.contest.exception.ResourceNotFoundException;
+import com.shodhai.contest.model.RejudgeRun;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.repository.ContestParticipantRepository;
+import com.shodhai.contest.repository.ContestProblemResultRepository;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import com.shodhai.contest.repository.RejudgeRunRepository;
+import com.shodhai.contest.repository.SubmissionRepository;
+import com.shodhai.contest.service.LeaderboardService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Bulk rejudges. A run never floods the queue: its submissions are queued as background jobs, which
+// are claimed after every live one, and only up to rejudge.max-in-flight of them at a time and only
+// while the live queue is short. The compile cache is keyed by source, so identical code is built
+// once for the whole run. When the last job finishes, results and standings are recomputed only for
+// the users whose verdict or score changed.
+@Component
+@Slf4j
+public class RejudgeRunner {
+    
+    private final JudgeConfig judgeConfig;
+    private final RejudgeRunRepository rejudgeRunRepository;
+    private final JudgeJobRepository judgeJobRepository;
+    private final SubmissionRepository submissionRepository;
+    private final ContestParticipantRepository contestParticipantRepository;
+    private final ContestProblemResultRepository contestProblemResultRepository;
+    private final LeaderboardService leaderboardService;
+    
+    public RejudgeRunner(JudgeConfig judgeConfig, RejudgeRunRepository rejudgeRunRepository,
+            JudgeJobRepository judgeJobRepository, SubmissionRepository submissionRepository,
+            ContestParticipantRepository contestParticipantRepository,
+            ContestProblemResultRepository contestProblemResultRepository, LeaderboardService leaderboardService) {
+        this.judgeConfig = judgeConfig;
+        this.rejudgeRunRepository = rejudgeRunRepository;
+        this.judgeJobRepository = judgeJobRepository;
+        this.submissionRepository = submissionRepository;
+        this.contestParticipantRepository = contestParticipantRepository;
+        this.contestProblemResultRepository = contestProblemResultRepository;
+        this.leaderboardService = leaderboardService;
+    }
+    
+    @Transactional
+    public RejudgeRunResponse start(RejudgeRequest request) {
+        String verdict = request.getVerdict() != null && !request.getVerdict().isBlank()
+                ? parseVerdict(request.getVerdict())
+                : null;
+        if (request.getProblemId() == null && request.getContestId() == null && verdict == null) {
+            throw new IllegalArgumentException("A rejudge needs a problem, contest or verdict filter");
+        }
+        
+        RejudgeRun run = new RejudgeRun();
+        run.setProblemId(request.getProblemId());
+        run.setContestId(request.getContestId());
+        run.setVerdict(verdict);
+        run.setTotalSubmissions(submissionRepository.countRejudgeCandidates(
+                orZero(run.getProblemId()), orZero(run.getContestId()), orEmpty(verdict)));
+        run = rejudgeRunRepository.save(run);
+        log.info("Started rejudge {} of {} submissions (problem {}, contest {}, verdict {})", run.getId(),
+                run.getTotalSubmissions(), run.getProblemId(), run.getContestId(), verdict);
+        return toResponse(run);
+    }
+    
+    // Jobs not yet claimed are dropped; the ones running finish and count towards the result
+    @Transactional
+    public RejudgeRunResponse cancel(Long runId) {
+        RejudgeRun run = rejudgeRunRepository.lockById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Rejudge", "id", runId));
+        if (run.getStatus() != RejudgeRun.Status.RUNNING) {
+            throw new IllegalArgumentException("Rejudge " + runId + " is " + run.getStatus());
+        }
+        int dropped = judgeJobRepository.cancelRejudge(runId);
+        run.setStatus(RejudgeRun.Status.CANCELLED);
+        finish(run);
+        log.info("Cancelled rejudge {}, {} queued jobs dropped", runId, dropped);
+        return toResponse(rejudgeRunRepository.save(run));
+    }
+    
+    public List<RejudgeRunResponse> getRuns() {
+        return rejudgeRunRepository.findAllByOrderByCreatedAtDesc().stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+    
+    public RejudgeRunResponse getRun(Long runId) {
+        return rejudgeRunRepository.findById(runId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Rejudge", "id", runId));
+    }
+    
+    // Runs on every node; the row lock lets one of them advance the oldest run per tick
+    @Scheduled(fixedDelayString = "${judge.rejudge.interval-ms:1000}")
+    @Transactional
+    public void advance() {
+        Optional<RejudgeRun> active = rejudgeRunRepository.lockOldestRunning();
+        if (active.isEmpty()) {
+            return;
+        }
+        RejudgeRun run = active.get();
+        if (!run.getAllQueued()) {
+            queueMore(run);
+        }
+        if (run.getAllQueued() && judgeJobRepository.findRejudgeProgress(run.getId()).getPending() == 0) {
+            run.setStatus(RejudgeRun.Status.COMPLETED);
+            finish(run);
+        }
+        rejudgeRunRepository.save(run);
+    }
+    
+    private void queueMore(RejudgeRun run) {
+        JudgeConfig.Rejudge config = judgeConfig.getRejudge();
+        if (judgeJobRepository.countLiveQueued() > config.getMaxLiveQueued()) {
+            return;
+        }
+        int room = (int) (config.getMaxInFlight() - judgeJobRepository.countBackgroundInFlight());
+        if (room <= 0) {
+            return;
+        }
+        List<Long> queued = judgeJobRepository.enqueueRejudge(run.getId(), orZero(run.getProblemId()),
+                orZero(run.getContestId()), orEmpty(run.getVerdict()), run.getLastSubmissionId(), room);
+        if (queued.isEmpty()) {
+            run.setAllQueued(true);
+            return;
+        }
+        run.setLastSubmissionId(Collections.max(queued));
+        run.setQueuedSubmissions(run.getQueuedSubmissions() + queued.size());
+        judgeJobRepository.notifyJobQueued();
+    }
+    
+    private void finish(RejudgeRun run) {
+        JudgeJobRepository.RejudgeProgress progress = judgeJobRepository.findRejudgeProgress(run.getId());
+        run.setChangedSubmissions(progress.getChanged());
+        run.setAffectedUsers(progress.getAffectedUsers());
+        run.setFinishedAt(LocalDateTime.now());
+        // Results first, since the participant totals are summed from them
+        contestProblemResultRepository.recomputeAfterRejudge(run.getId());
+        int repaired = contestParticipantRepository.repairScoresAfterRejudge(run.getId());
+        // In-memory standings on every node are rebuilt from the repaired results
+        judgeJobRepository.findRejudgedContests(run.getId()).forEach(leaderboardService::reloadContest);
+        log.info("Rejudge {} {}: {} of {} judged submissions changed, {} participant scores recomputed",
+                run.getId(), run.getStatus(), progress.getChanged(), progress.getJudged(), repaired);
+    }
+    
+    private RejudgeRunResponse toResponse(RejudgeRun run) {
+        JudgeJobRepository.RejudgeProgress progress = judgeJobRepository.findRejudgeProgress(run.getId());
+        return RejudgeRunResponse.builder()
+                .id(run.getId())
+                .problemId(run.getProblemId())
+                .contestId(run.getContestId())
+                .verdict(run.getVerdict())
+                .status(run.getStatus().name())
+                .totalSubmissions(run.getTotalSubmissions())
+                .queuedSubmissions(run.getQueuedSubmissions())
+                .judgedSubmissions(progress.getJudged())
+                .pendingSubmissions(progress.getPending())
+                .changedSubmissions(run.getChangedSubmissions() != null
+                        ? run.getChangedSubmissions()
+                        : progress.getChanged())
+                .affectedUsers(run.getAffectedUsers() != null ? run.getAffectedUsers() : progress.getAffectedUsers())
+                .createdAt(run.getCreatedAt())
+                .finishedAt(run.getFinishedAt())
+                .build();
+    }
+    
+    private String parseVerdict(String verdict) {
+        Submission.Status status;
+        try {
+            status = Submission.Status.valueOf(verdict.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown verdict: " + verdict);
+        }
+        if (status == Submission.Status.PENDING || status == Submission.Status.RUNNING) {
+            throw new IllegalArgumentException("Only finished submissions can be rejudged");
+        }
+        return status.name();
+    }
+    
+    private static long orZero(Long id) {
+        return id != null ? id : 0L;
+    }
+    
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
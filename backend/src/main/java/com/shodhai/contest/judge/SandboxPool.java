@@ -0,0 +1,328 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.model.Submission.Language;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@Slf4j
+public class SandboxPool {
+    
+    private static final String POOL_LABEL = "shodhai.judge.pool";
+    // Several workers may share one Docker host; each only cleans up its own containers
+    private static final String NODE_LABEL = "shodhai.judge.node";
+    
+    private final JudgeConfig judgeConfig;
+    private final Map<Language, BlockingQueue<Sandbox>> idle = new EnumMap<>(Language.class);
+    private final ExecutorService maintenanceExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "sandbox-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = false;
+    
+    public SandboxPool(JudgeConfig judgeConfig) {
+        this.judgeConfig = judgeConfig;
+        for (Language language : Language.values()) {
+            idle.put(language, new LinkedBlockingQueue<>());
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!judgeConfig.getPool().getEnabled() || !judgeConfig.isJudging()) {
+            log.info("Sandbox pool disabled, every run uses a fresh container");
+            return;
+        }
+        running = true;
+        
+        // Warm up in the background so a missing Docker daemon does not block startup
+        maintenanceExecutor.submit(() -> {
+            removeStaleContainers();
+            for (Language language : Language.values()) {
+                for (int i = 0; i < judgeConfig.getPool().getSizePerLanguage(); i++) {
+                    startSandbox(language);
+                }
+            }
+            log.info("Sandbox pool warmed with {} containers per language",
+                    judgeConfig.getPool().getSizePerLanguage());
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        maintenanceExecutor.shutdownNow();
+        for (BlockingQueue<Sandbox> sandboxes : idle.values()) {
+            Sandbox sandbox;
+            while ((sandbox = sandboxes.poll()) != null) {
+                destroy(sandbox);
+            }
+        }
+        log.info("Sandbox pool stopped");
+    }
+    
+    public boolean isEnabled() {
+        return running;
+    }
+    
+    public Optional<Sandbox> acquire(Language language) {
+        if (!running) {
+            return Optional.empty();
+        }
+        try {
+            Sandbox sandbox = idle.get(language).poll(
+                    judgeConfig.getPool().getAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+            return Optional.ofNullable(sandbox);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+    
+    // Returns a sandbox after a run; unhealthy or worn-out containers are replaced
+    public void release(Sandbox sandbox, boolean healthy) {
+        int uses = sandbox.uses.incrementAndGet();
+        if (!running) {
+            destroy(sandbox);
+            return;
+        }
+        if (!healthy || uses >= judgeConfig.getPool().getMaxUses()) {
+            maintenanceExecutor.submit(() -> {
+                destroy(sandbox);
+                startSandbox(sandbox.getLanguage());
+            });
+            return;
+        }
+        maintenanceExecutor.submit(() -> {
+            if (scrub(sandbox)) {
+                idle.get(sandbox.getLanguage()).offer(sandbox);
+            } else {
+                destroy(sandbox);
+                startSandbox(sandbox.getLanguage());
+            }
+        });
+    }
+    
+    // Resizes a pooled container to the problem's memory limit and pins it to the run's core
+    // (-1 for no pinning); only settings that differ from the last run are updated
+    public boolean applyLimits(Sandbox sandbox, int memoryLimitMb, int cpu) {
+        List<String> command = new ArrayList<>(List.of("docker", "update"));
+        if (sandbox.memoryLimitMb != memoryLimitMb) {
+            command.add("--memory=" + memoryLimitMb + "m");
+            command.add("--memory-swap=" + memoryLimitMb + "m");
+        }
+        if (cpu >= 0 && sandbox.cpu != cpu) {
+            command.add("--cpuset-cpus=" + cpu);
+        }
+        if (command.size() == 2) {
+            return true;
+        }
+        command.add(sandbox.getContainerName());
+        if (!runDockerCommand(command)) {
+            log.warn("Failed to update limits on pooled sandbox {}", sandbox.getContainerName());
+            return false;
+        }
+        sandbox.memoryLimitMb = memoryLimitMb;
+        if (cpu >= 0) {
+            sandbox.cpu = cpu;
+        }
+        return true;
+    }
+    
+    // Hard-links the build into the sandbox directory, which the container sees read-only
+    public void stage(Sandbox sandbox, Path buildDir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(buildDir)) {
+            for (Path file : files) {
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                stageFile(sandbox, file, file.getFileName().toString());
+            }
+        }
+    }
+    
+    public void stageFile(Sandbox sandbox, Path file, String name) throws IOException {
+        Path target = sandbox.getDirectory().resolve(name);
+        try {
+            Files.createLink(target, file);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(file, target);
+        }
+    }
+    
+    public List<String> buildExecCommand(Sandbox sandbox, String command) {
+        List<String> execCommand = new ArrayList<>();
+        execCommand.add("docker");
+        execCommand.add("exec");
+        execCommand.add("-w");
+        execCommand.add("/workspace");
+        execCommand.add(sandbox.getContainerName());
+        execCommand.add("sh");
+        execCommand.add("-c");
+        execCommand.add(command);
+        return execCommand;
+    }
+    
+    private void startSandbox(Language language) {
+        if (!running) {
+            return;
+        }
+        String containerName = "judge-pool-" + language.name().toLowerCase() + "-"
+                + UUID.randomUUID().toString().substring(0, 8);
+        try {
+            Path directory = Files.createDirectories(
+                    Paths.get(judgeConfig.getTempDir(), "sandboxes", containerName));
+            
+            List<String> command = new ArrayList<>();
+            command.add("docker");
+            command.add("run");
+            command.add("-d");
+            command.add("--name=" + containerName);
+            command.add("--label=" + POOL_LABEL + "=" + language.name());
+            command.add("--label=" + NODE_LABEL + "=" + judgeConfig.getNodeId());
+            command.add("--network=" + judgeConfig.getDocker().getNetworkMode());
+            command.add("--memory=" + judgeConfig.getDocker().getMemoryLimit());
+            command.add("--memory-swap=" + judgeConfig.getDocker().getMemoryLimit());
+            command.add("--cpus=" + judgeConfig.getDocker().getCpuLimit());
+            command.add("--read-only");
+            command.add("--tmpfs=/tmp:rw,size=64m");
+            command.add("-v");
+            command.add(directory.toAbsolutePath() + ":/workspace:ro");
+            command.add(judgeConfig.getDocker().getImage());
+            command.add("sleep");
+            command.add("infinity");
+            
+            if (runDockerCommand(command)) {
+                idle.get(language).offer(new Sandbox(containerName, language, directory));
+            } else {
+                log.warn("Failed to start pooled sandbox {}", containerName);
+                deleteDirectory(directory.toFile());
+            }
+        } catch (IOException e) {
+            log.error("Failed to prepare pooled sandbox {}", containerName, e);
+        }
+    }
+    
+    // Stops every process of a run before its slot is handed on; killing the docker exec client
+    // leaves them running. Also done when the judge thread was interrupted, hence the flag juggling.
+    public boolean killProcesses(Sandbox sandbox) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            return runDockerCommand(List.of("docker", "exec", sandbox.getContainerName(),
+                    "sh", "-c", "kill -9 -1 2>/dev/null; true"));
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    // Kills anything the last run left behind and empties /tmp and the workspace
+    private boolean scrub(Sandbox sandbox) {
+        clearDirectory(sandbox.getDirectory().toFile());
+        return runDockerCommand(List.of("docker", "exec", sandbox.getContainerName(),
+                "sh", "-c", "kill -9 -1 2>/dev/null; rm -rf /tmp/* /tmp/.[!.]* 2>/dev/null; true"));
+    }
+    
+    private void destroy(Sandbox sandbox) {
+        runDockerCommand(List.of("docker", "rm", "-f", sandbox.getContainerName()));
+        deleteDirectory(sandbox.getDirectory().toFile());
+    }
+    
+    private void removeStaleContainers() {
+        try {
+            Process process = new ProcessBuilder("docker", "ps", "-aq", "--filter", "label=" + POOL_LABEL,
+                    "--filter", "label=" + NODE_LABEL + "=" + judgeConfig.getNodeId())
+                    .redirectErrorStream(true)
+                    .start();
+            String ids = new String(process.getInputStream().readAllBytes()).trim();
+            Processes.awaitExit(process, 10, TimeUnit.SECONDS);
+            if (process.exitValue() == 0 && !ids.isEmpty()) {
+                List<String> command = new ArrayList<>(List.of("docker", "rm", "-f"));
+                command.addAll(List.of(ids.split("\\s+")));
+                runDockerCommand(command);
+                log.info("Removed stale pooled sandboxes: {}", ids.replaceAll("\\s+", " "));
+            }
+        } catch (Exception e) {
+            log.warn("Could not list stale pooled sandboxes: {}", e.getMessage());
+        }
+        deleteDirectory(Paths.get(judgeConfig.getTempDir(), "sandboxes").toFile());
+    }
+    
+    private boolean runDockerCommand(List<String> command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!Processes.awaitExit(process, 30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            log.warn("Docker command failed: {}", e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private void clearDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDirectory(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+    }
+    
+    private void deleteDirectory(File directory) {
+        if (directory.exists()) {
+            clearDirectory(directory);
+            directory.delete();
+        }
+    }
+    
+    @Getter
+    public static class Sandbox {
+        private final String containerName;
+        private final Language language;
+        private final Path directory;
+        private final AtomicInteger uses = new AtomicInteger();
+        // Set by the first docker update; until then the container has the global default
+        private volatile int memoryLimitMb = -1;
+        private volatile int cpu = -1;
+        
+        Sandbox(String containerName, Language language, Path directory) {
+            this.containerName = containerName;
+            this.language = language;
+            this.directory = directory;
+        }
+    }
+}
@@ -1,95 +1,312 @@
 package com.shodhai.contest.judge;
 
 import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.exception.QueueFullException;
+import com.shodhai.contest.model.JudgeJob;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+// Submissions are queued as rows in judge_jobs, so nothing is lost when the backend restarts.
+// A dispatcher leases jobs and runs each one on its own virtual thread; heartbeats keep the leases
+// alive while judging and a lease that stops being renewed is picked up again by any node.
+// Sandbox runs are limited by the execution slots, not by threads, so many more submissions can
+// be compiling, waiting for a slot, validating or saving than there are sandboxes. It starts after
+// SchemaUpgrade, since judging saves statuses only the upgraded schema accepts.
 @Component
+@DependsOn("schemaUpgrade")
 @Slf4j
 public class SubmissionQueue {
     
     private final JudgeConfig judgeConfig;
     private final JudgeService judgeService;
-    private final BlockingQueue<Long> queue;
+    private final JudgeJobRepository judgeJobRepository;
+    private final JudgeScheduler judgeScheduler;
+    private final ContestQuotaManager contestQuotaManager;
+    private final ConcurrencyController concurrencyController;
+    private final JudgeMetrics judgeMetrics;
     private final ExecutorService executorService;
+    private final Thread dispatcher;
+    // Unique per process, so leases of an earlier incarnation of this node can be told apart
+    private final String leaseOwner;
+    // Submission id to the contest it counts against (0 for practice submissions)
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock wakeupLock = new ReentrantLock();
+    private final Condition wakeup = wakeupLock.newCondition();
     private volatile boolean running = false;
+    // Set while an admin drains this worker: running jobs finish, no new ones are claimed
+    private volatile boolean draining = false;
+    // Jobs finished per second across all nodes, refreshed at most once per poll interval
+    private volatile double throughput = 0;
+    private volatile long throughputMeasuredAt = 0;
     
-    public SubmissionQueue(JudgeConfig judgeConfig, JudgeService judgeService) {
+    public SubmissionQueue(JudgeConfig judgeConfig, JudgeService judgeService, JudgeJobRepository judgeJobRepository,
+            JudgeScheduler judgeScheduler, ContestQuotaManager contestQuotaManager,
+            ConcurrencyController concurrencyController, JudgeMetrics judgeMetrics) {
         this.judgeConfig = judgeConfig;
         this.judgeService = judgeService;
-        this.queue = new LinkedBlockingQueue<>(judgeConfig.getQueueCapacity());
-        this.executorService = Executors.newFixedThreadPool(judgeConfig.getWorkerThreads());
+        this.judgeJobRepository = judgeJobRepository;
+        this.judgeScheduler = judgeScheduler;
+        this.contestQuotaManager = contestQuotaManager;
+        this.concurrencyController = concurrencyController;
+        this.judgeMetrics = judgeMetrics;
+        this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.leaseOwner = judgeConfig.getNodeId() + ":" + UUID.randomUUID().toString().substring(0, 8);
+        this.dispatcher = new Thread(this::dispatch, "judge-dispatcher");
+        this.dispatcher.setDaemon(true);
+        judgeMetrics.monitorInFlight(inFlight);
     }
     
     @PostConstruct
     public void start() {
-        running = true;
-        log.info("Starting submission queue with {} worker threads", judgeConfig.getWorkerThreads());
+        // Jobs this node was judging when it last went down are queued again straight away
+        // instead of waiting for their leases to expire
+        int recovered = judgeJobRepository.requeueLeases(judgeConfig.getNodeId() + ":");
+        int orphaned = judgeJobRepository.enqueueOrphanedSubmissions();
+        if (recovered > 0 || orphaned > 0) {
+            log.info("Recovered {} interrupted and {} unqueued submissions", recovered, orphaned);
+        }
         
-        for (int i = 0; i < judgeConfig.getWorkerThreads(); i++) {
-            final int workerId = i;
-            executorService.submit(() -> processQueue(workerId));
+        // API-only nodes enqueue jobs but leave judging to the workers
+        if (!judgeConfig.isJudging()) {
+            log.info("Judge role is {}, not claiming jobs on this node", judgeConfig.getRole());
+            return;
         }
+        running = true;
+        log.info("Starting submission queue {} with {} execution slots", leaseOwner, concurrencyController.getLimit());
+        dispatcher.start();
     }
     
+    // Stops claiming, lets running submissions finish, then hands back whatever is left
     @PreDestroy
     public void stop() {
         running = false;
-        executorService.shutdownNow();
+        wake();
+        executorService.shutdown();
         try {
-            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                log.warn("Executor service did not terminate gracefully");
+            if (!executorService.awaitTermination(judgeConfig.getJobs().getDrainTimeoutSeconds(), TimeUnit.SECONDS)) {
+                log.warn("Submissions {} did not finish before shutdown", inFlight.keySet());
+                executorService.shutdownNow();
             }
         } catch (InterruptedException e) {
+            executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
-        log.info("Submission queue stopped");
+        int requeued = judgeJobRepository.requeueLeases(leaseOwner);
+        log.info("Submission queue stopped, {} unfinished jobs returned to the queue", requeued);
     }
     
-    public boolean addSubmission(Long submissionId) {
-        try {
-            boolean added = queue.offer(submissionId, 5, TimeUnit.SECONDS);
-            if (added) {
-                log.info("Submission {} added to queue. Queue size: {}", submissionId, queue.size());
-            } else {
-                log.warn("Failed to add submission {} to queue - queue is full", submissionId);
-            }
-            return added;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while adding submission to queue", e);
-            return false;
+    // Called inside the submitting transaction, so the job exists exactly when the submission does.
+    // Never waits: a full queue throws, which rolls the submission back for the client to retry.
+    // Background rejudge jobs do not count, they are claimed after this one anyway.
+    public void addSubmission(Long submissionId) {
+        long queued = judgeJobRepository.countLiveQueued();
+        if (queued >= judgeConfig.getQueueCapacity()) {
+            Integer drainSeconds = estimateWaitSeconds(queued - judgeConfig.getQueueCapacity() + 1);
+            int retryAfter = drainSeconds != null
+                    ? Math.max(1, Math.min(drainSeconds, judgeConfig.getJobs().getMaxRetryAfterSeconds()))
+                    : judgeConfig.getJobs().getMaxRetryAfterSeconds();
+            log.warn("Rejected submission {} - queue is full, retry after {}s", submissionId, retryAfter);
+            throw new QueueFullException("The judge queue is full, please submit again shortly", retryAfter);
+        }
+        
+        judgeJobRepository.save(judgeScheduler.newJob(submissionId));
+        // Delivered to listening workers on every node when the transaction commits
+        judgeJobRepository.notifyJobQueued();
+        log.info("Submission {} added to queue", submissionId);
+        
+        // Local workers can only see the job once it is committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
         }
     }
     
-    private void processQueue(int workerId) {
-        log.info("Worker {} started", workerId);
-        
+    // Where a queued submission stands and roughly how long until it is judged
+    public Optional<QueuePosition> getQueuePosition(Long submissionId) {
+        long position = judgeJobRepository.findQueuePosition(submissionId);
+        if (position == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new QueuePosition(position, estimateWaitSeconds(position)));
+    }
+    
+    // Null until any job has finished within the throughput window
+    private Integer estimateWaitSeconds(long jobsAhead) {
+        long now = System.currentTimeMillis();
+        if (now - throughputMeasuredAt > judgeConfig.getJobs().getPollIntervalMs()) {
+            int window = judgeConfig.getJobs().getThroughputWindowSeconds();
+            throughput = (double) judgeJobRepository.countFinishedWithin(window) / window;
+            throughputMeasuredAt = now;
+        }
+        return throughput > 0 ? (int) Math.ceil(jobsAhead / throughput) : null;
+    }
+    
+    private void dispatch() {
         while (running) {
             try {
-                Long submissionId = queue.poll(1, TimeUnit.SECONDS);
-                if (submissionId != null) {
-                    log.info("Worker {} processing submission {}", workerId, submissionId);
-                    judgeService.processSubmission(submissionId);
-                    log.info("Worker {} completed submission {}", workerId, submissionId);
+                // Leases are bounded per slot so one node does not hoard the queue from the others
+                int capacity = concurrencyController.getLimit() * judgeConfig.getJobs().getInFlightPerSlot();
+                int free = draining ? 0 : capacity - inFlight.size();
+                int claimed = free > 0 ? claimByContest(capacity, free) : 0;
+                if (claimed == 0) {
+                    wakeupLock.lock();
+                    try {
+                        wakeup.await(judgeConfig.getJobs().getPollIntervalMs(), TimeUnit.MILLISECONDS);
+                    } finally {
+                        wakeupLock.unlock();
+                    }
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             } catch (Exception e) {
-                log.error("Worker {} error processing submission", workerId, e);
+                log.error("Failed to claim judge jobs", e);
+                sleepQuietly(judgeConfig.getJobs().getPollIntervalMs());
             }
         }
+        log.info("Judge dispatcher stopped");
+    }
+    
+    // Free workers are split between contests by their quotas, then each contest's share is
+    // claimed in fair-share order within that contest
+    private int claimByContest(int capacity, int free) {
+        List<JudgeJobRepository.ContestDemand> demand =
+                judgeJobRepository.countClaimableByContest(judgeConfig.getJobs().getMaxAttempts());
+        if (demand.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Integer> running = new HashMap<>();
+        inFlight.values().forEach(contestId -> running.merge(contestId, 1, Integer::sum));
         
-        log.info("Worker {} stopped", workerId);
+        int claimed = 0;
+        for (Map.Entry<Long, Integer> allowance : contestQuotaManager.plan(demand, running, capacity, free).entrySet()) {
+            Long contestId = allowance.getKey();
+            for (JudgeJobRepository.ClaimedJob job : claim(contestId, allowance.getValue())) {
+                Long submissionId = job.getSubmissionId();
+                // Retries of an expired lease would count the earlier attempt as waiting
+                if (job.getAttempts() == 1) {
+                    judgeMetrics.recordQueueWait(job.getWaitMs(), job.getPriority() >= JudgeJob.PRIORITY_BACKGROUND);
+                }
+                // A job whose lease lapsed while still running here must not run twice
+                if (inFlight.putIfAbsent(submissionId, contestId) == null) {
+                    JudgeTimeline timeline = JudgeTimeline.claimed(job.getWaitMs(), job.getAttempts());
+                    executorService.execute(() -> process(submissionId, contestId, timeline));
+                    claimed++;
+                }
+            }
+        }
+        return claimed;
+    }
+    
+    private List<JudgeJobRepository.ClaimedJob> claim(Long contestId, int limit) {
+        return judgeJobRepository.claim(leaseOwner, judgeConfig.getJobs().getLeaseSeconds(),
+                judgeConfig.getJobs().getMaxAttempts(), judgeConfig.getJobs().getRetryWeight(), contestId, limit);
+    }
+    
+    private void process(Long submissionId, Long contestId, JudgeTimeline timeline) {
+        long startedAt = System.currentTimeMillis();
+        try {
+            log.info("Processing submission {}", submissionId);
+            judgeService.processSubmission(submissionId, timeline);
+            if (judgeJobRepository.complete(submissionId, leaseOwner) == 0) {
+                log.warn("Lease on submission {} was lost before it completed", submissionId);
+            }
+            log.info("Completed submission {}", submissionId);
+        } catch (Exception e) {
+            // Only a failed rejudge gets here, since any other failure is saved as a SYSTEM_ERROR verdict
+            log.error("Error processing submission {}", submissionId, e);
+            try {
+                judgeJobRepository.retry(submissionId, leaseOwner, judgeConfig.getJobs().getMaxAttempts());
+            } catch (Exception retryError) {
+                // The lease expires and the job is retried elsewhere
+                log.warn("Failed to hand back submission {}: {}", submissionId, retryError.getMessage());
+            }
+        } finally {
+            inFlight.remove(submissionId);
+            contestQuotaManager.recordCompletion(contestId, System.currentTimeMillis() - startedAt);
+            wake();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${judge.jobs.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (!inFlight.isEmpty()) {
+            judgeJobRepository.extendLeases(leaseOwner, judgeConfig.getJobs().getLeaseSeconds());
+        }
+        List<Long> failed = judgeJobRepository.failExhausted(judgeConfig.getJobs().getMaxAttempts());
+        if (!failed.isEmpty()) {
+            log.warn("Gave up on {} submissions after {} attempts", failed.size(),
+                    judgeConfig.getJobs().getMaxAttempts());
+            failed.forEach(judgeService::failExhausted);
+        }
+    }
+    
+    void wake() {
+        wakeupLock.lock();
+        try {
+            wakeup.signalAll();
+        } finally {
+            wakeupLock.unlock();
+        }
+    }
+    
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+    
+    public boolean isDraining() {
+        return draining;
+    }
+    
+    public void setDraining(boolean draining) {
+        this.draining = draining;
+        wake();
     }
     
     public int getQueueSize() {
-        return queue.size();
+        return (int) judgeJobRepository.countByStatus(JudgeJob.Status.QUEUED);
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class QueuePosition {
+        private long position;
+        private Integer estimatedWaitSeconds;
     }
 }
-
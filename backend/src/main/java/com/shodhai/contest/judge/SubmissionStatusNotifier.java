@@ -0,0 +1,108 @@
+package com.shodhai.contest.judge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shodhai.contest.config.StreamConfig;
+import com.shodhai.contest.dto.response.SubmissionStatusEvent;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.repository.SubmissionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Publishes status transitions of a submission on the submission_status channel, where the node
+// holding the user's stream picks them up. The payload is "userId,json" so that node can forward
+// the JSON without parsing it.
+@Component
+@Slf4j
+public class SubmissionStatusNotifier {
+    
+    private final SubmissionRepository submissionRepository;
+    private final ObjectMapper objectMapper;
+    private final StreamConfig streamConfig;
+    
+    public SubmissionStatusNotifier(SubmissionRepository submissionRepository, ObjectMapper objectMapper,
+            StreamConfig streamConfig) {
+        this.submissionRepository = submissionRepository;
+        this.objectMapper = objectMapper;
+        this.streamConfig = streamConfig;
+    }
+    
+    // Announces that tests are about to run; progress is only published when enabled
+    public Progress running(Submission submission, int totalTests, boolean enabled) {
+        Progress progress = new Progress(submission, totalTests, enabled);
+        if (enabled) {
+            progress.publish();
+        }
+        return progress;
+    }
+    
+    public void finished(Submission submission) {
+        publish(submission.getUser().getId(), SubmissionStatusEvent.builder()
+                .submissionId(submission.getId())
+                .problemId(submission.getProblem().getId())
+                .contestId(submission.getContest().getId())
+                .status(submission.getStatus().name())
+                .result(submission.getResult())
+                .score(submission.getScore())
+                .testsCompleted(submission.getTotalTestCases())
+                .testCasesPassed(submission.getTestCasesPassed())
+                .totalTestCases(submission.getTotalTestCases())
+                .executionTimeMs(submission.getExecutionTimeMs())
+                .memoryUsedMb(submission.getMemoryUsedMb())
+                .completedAt(submission.getCompletedAt())
+                .build());
+    }
+    
+    // A lost notification only delays the user's view until the verdict or their next read
+    private void publish(Long userId, SubmissionStatusEvent event) {
+        try {
+            submissionRepository.notifyStatus(userId + "," + objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.warn("Failed to publish status of submission {}: {}", event.getSubmissionId(), e.getMessage());
+        }
+    }
+    
+    // Tests finished so far; called from the threads running them, published at most once per
+    // progress interval
+    public class Progress {
+        
+        private final Submission submission;
+        private final int totalTests;
+        private final boolean enabled;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicLong lastPublishedMillis = new AtomicLong();
+        
+        private Progress(Submission submission, int totalTests, boolean enabled) {
+            this.submission = submission;
+            this.totalTests = totalTests;
+            this.enabled = enabled;
+        }
+        
+        public void testFinished() {
+            int done = completed.incrementAndGet();
+            if (!enabled || done >= totalTests) {
+                // The verdict follows right away
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long last = lastPublishedMillis.get();
+            if (now - last >= streamConfig.getProgressIntervalMs() && lastPublishedMillis.compareAndSet(last, now)) {
+                publish();
+            }
+        }
+        
+        private void publish() {
+            lastPublishedMillis.set(System.currentTimeMillis());
+            SubmissionStatusNotifier.this.publish(submission.getUser().getId(), SubmissionStatusEvent.builder()
+                    .submissionId(submission.getId())
+                    .problemId(submission.getProblem().getId())
+                    .contestId(submission.getContest().getId())
+                    .status(Submission.Status.RUNNING.name())
+                    .testsCompleted(completed.get())
+                    .totalTestCases(totalTests)
+                    .build());
+        }
+    }
+}
@@ -3,55 +3,193 @@ package com.shodhai.contest.judge;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 @Component
 public class TestCaseValidator {
     
     public ValidationResult validate(String actualOutput, String expectedOutput) {
         if (actualOutput == null || expectedOutput == null) {
-            return ValidationResult.builder()
-                    .passed(false)
-                    .verdict("WRONG_ANSWER")
-                    .build();
+            return wrongAnswer();
+        }
+        
+        return validate(new ByteArrayResource(actualOutput.getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayResource(expectedOutput.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    // Compares both outputs as normalized byte streams and stops at the first mismatch
+    public ValidationResult validate(InputStreamSource actualOutput, InputStreamSource expectedOutput) {
+        if (actualOutput == null || expectedOutput == null) {
+            return wrongAnswer();
         }
         
-        // Normalize outputs (trim trailing whitespace, normalize line endings)
-        String normalizedActual = normalizeOutput(actualOutput);
-        String normalizedExpected = normalizeOutput(expectedOutput);
+        try (InputStream actual = actualOutput.getInputStream();
+             InputStream expected = expectedOutput.getInputStream()) {
+            Normalizer normalizedActual = new Normalizer(actual);
+            Normalizer normalizedExpected = new Normalizer(expected);
+            
+            int a;
+            int b;
+            do {
+                a = normalizedActual.next();
+                b = normalizedExpected.next();
+                if (a != b) {
+                    return wrongAnswer();
+                }
+            } while (a != -1);
+            
+            return accepted();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read output for validation", e);
+        }
+    }
+    
+    // For very large answers: compares against the stored hash instead of the expected text
+    public ValidationResult validateAgainstHash(InputStreamSource actualOutput, String expectedHash) {
+        if (actualOutput == null || expectedHash == null) {
+            return wrongAnswer();
+        }
         
-        boolean passed = normalizedActual.equals(normalizedExpected);
+        try (InputStream actual = actualOutput.getInputStream()) {
+            return expectedHash.equals(normalizedHash(actual)) ? accepted() : wrongAnswer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read output for validation", e);
+        }
+    }
+    
+    // SHA-256 of the normalized output, matching what validate() compares
+    public String normalizedHash(InputStream output) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
         
+        Normalizer normalizer = new Normalizer(output);
+        byte[] chunk = new byte[8192];
+        int length = 0;
+        int next;
+        while ((next = normalizer.next()) != -1) {
+            chunk[length++] = (byte) next;
+            if (length == chunk.length) {
+                digest.update(chunk, 0, length);
+                length = 0;
+            }
+        }
+        digest.update(chunk, 0, length);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private ValidationResult accepted() {
         return ValidationResult.builder()
-                .passed(passed)
-                .verdict(passed ? "ACCEPTED" : "WRONG_ANSWER")
+                .passed(true)
+                .verdict("ACCEPTED")
                 .build();
     }
     
-    private String normalizeOutput(String output) {
-        if (output == null) {
-            return "";
-        }
+    private ValidationResult wrongAnswer() {
+        return ValidationResult.builder()
+                .passed(false)
+                .verdict("WRONG_ANSWER")
+                .build();
+    }
+    
+    // Yields the output one byte at a time with each line trimmed and blank lines at the
+    // start and end dropped, without building intermediate strings
+    private static final class Normalizer {
+        
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int position = 0;
+        private int limit = 0;
         
-        // Split into lines, trim each line, remove empty lines at end
-        String[] lines = output.split("\\r?\\n");
-        StringBuilder normalized = new StringBuilder();
+        // Whitespace inside a line is held back until we know the line continues
+        private byte[] pendingSpace = new byte[64];
+        private int pendingSpaceLength = 0;
+        private int pendingNewlines = 0;
+        private boolean atLineStart = true;
+        private boolean started = false;
         
-        for (int i = 0; i < lines.length; i++) {
-            String trimmed = lines[i].trim();
-            normalized.append(trimmed);
-            if (i < lines.length - 1) {
-                normalized.append("\n");
+        // Bytes released after a content byte: newlines, then held whitespace, then the byte
+        private int emitSpaceIndex = 0;
+        private int heldByte = -1;
+        
+        Normalizer(InputStream in) {
+            this.in = in;
+        }
+        
+        int next() throws IOException {
+            while (true) {
+                if (heldByte != -1) {
+                    if (pendingNewlines > 0) {
+                        pendingNewlines--;
+                        return '\n';
+                    }
+                    if (emitSpaceIndex < pendingSpaceLength) {
+                        return pendingSpace[emitSpaceIndex++];
+                    }
+                    int b = heldByte;
+                    heldByte = -1;
+                    pendingSpaceLength = 0;
+                    emitSpaceIndex = 0;
+                    return b;
+                }
+                
+                int b = read();
+                if (b == -1) {
+                    return -1;
+                }
+                if (b == '\n') {
+                    // Trailing whitespace of the line is dropped
+                    pendingSpaceLength = 0;
+                    if (started) {
+                        pendingNewlines++;
+                    }
+                    atLineStart = true;
+                } else if (b <= ' ') {
+                    // Same whitespace set as String.trim(), which includes '\r'
+                    if (!atLineStart) {
+                        holdSpace((byte) b);
+                    }
+                } else {
+                    atLineStart = false;
+                    started = true;
+                    heldByte = b;
+                }
             }
         }
         
-        // Remove trailing newlines
-        String result = normalized.toString();
-        while (result.endsWith("\n")) {
-            result = result.substring(0, result.length() - 1);
+        private void holdSpace(byte b) {
+            if (pendingSpaceLength == pendingSpace.length) {
+                byte[] grown = new byte[pendingSpace.length * 2];
+                System.arraycopy(pendingSpace, 0, grown, 0, pendingSpaceLength);
+                pendingSpace = grown;
+            }
+            pendingSpace[pendingSpaceLength++] = b;
         }
         
-        return result;
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
     }
     
     @Data
@@ -62,4 +200,3 @@ public class TestCaseValidator {
         private String verdict;
     }
 }
-
@@ -0,0 +1,268 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.repository.TestCaseRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Test data of each problem version as files on local disk, written once from the database.
+// Sandboxes mount a version directory read-only and expected outputs are memory-mapped for checking.
+@Component
+@Slf4j
+public class TestDataStore {
+    
+    private static final String MANIFEST = "manifest.txt";
+    
+    private final JudgeConfig judgeConfig;
+    private final TestCaseRepository testCaseRepository;
+    private final TestCaseValidator testCaseValidator;
+    private final Path root;
+    // Guarded by the lock of the problem the set belongs to
+    private final Map<Path, TestSet> testSets = new ConcurrentHashMap<>();
+    private final Map<Long, String> latestVersions = new ConcurrentHashMap<>();
+    // ReentrantLock rather than a monitor: materializing blocks on JDBC and disk, which would pin
+    // a virtual thread to its carrier inside synchronized
+    private final Map<Long, ReentrantLock> problemLocks = new ConcurrentHashMap<>();
+    
+    public TestDataStore(JudgeConfig judgeConfig, TestCaseRepository testCaseRepository,
+            TestCaseValidator testCaseValidator) {
+        this.judgeConfig = judgeConfig;
+        this.testCaseRepository = testCaseRepository;
+        this.testCaseValidator = testCaseValidator;
+        this.root = Paths.get(judgeConfig.getTempDir(), "testdata");
+    }
+    
+    // Returns the files of a problem version, writing them first if this node has not seen it.
+    // The set stays on disk until release() even if a newer version arrives meanwhile.
+    public TestSet acquire(Long problemId, String version) throws IOException {
+        ReentrantLock lock = lock(problemId);
+        lock.lock();
+        try {
+            Path directory = root.resolve(String.valueOf(problemId)).resolve(version);
+            TestSet testSet = testSets.get(directory);
+            if (testSet == null) {
+                testSet = Files.exists(directory.resolve(MANIFEST))
+                        ? readManifest(problemId, version, directory)
+                        : materialize(problemId, version, directory);
+                testSets.put(directory, testSet);
+            }
+            testSet.users++;
+            
+            if (!version.equals(latestVersions.put(problemId, version))) {
+                removeSupersededVersions(problemId, version);
+            }
+            return testSet;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void release(TestSet testSet) {
+        if (testSet == null) {
+            return;
+        }
+        ReentrantLock lock = lock(testSet.getProblemId());
+        lock.lock();
+        try {
+            testSet.users--;
+            if (testSet.users == 0 && !testSet.getVersion().equals(latestVersions.get(testSet.getProblemId()))) {
+                testSets.remove(testSet.getDirectory());
+                deleteDirectory(testSet.getDirectory().toFile());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Maps the expected output on every read; nothing is copied onto the heap
+    public InputStreamSource expectedOutput(TestData testData) {
+        Path file = testData.getExpectedOutputFile();
+        return () -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        };
+    }
+    
+    // Rows are fetched one at a time as plain projections, so at most one test is on the heap
+    private TestSet materialize(Long problemId, String version, Path directory) throws IOException {
+        Path staging = directory.resolveSibling("." + version + "-" + System.nanoTime());
+        Files.createDirectories(staging);
+        try {
+            List<TestCaseRepository.TestCaseSummary> summaries =
+                    testCaseRepository.findSummariesByProblemId(problemId);
+            StringBuilder manifest = new StringBuilder();
+            for (int i = 0; i < summaries.size(); i++) {
+                TestCaseRepository.TestCaseSummary summary = summaries.get(i);
+                int number = i + 1;
+                TestCaseRepository.TestCaseData data = testCaseRepository.findDataById(summary.getId());
+                Path expectedFile = staging.resolve(number + ".out");
+                Files.writeString(staging.resolve(number + ".in"),
+                        data.getInput() != null ? data.getInput() : "", StandardCharsets.UTF_8);
+                Files.writeString(expectedFile,
+                        data.getExpectedOutput() != null ? data.getExpectedOutput() : "", StandardCharsets.UTF_8);
+                
+                // Large answers are checked by hash; it is computed once and stored with the test case
+                String hash = summary.getExpectedOutputHash();
+                if (hash == null && Files.size(expectedFile) >= judgeConfig.getHashCompareThresholdBytes()) {
+                    try (InputStream expected = Files.newInputStream(expectedFile)) {
+                        hash = testCaseValidator.normalizedHash(expected);
+                    }
+                    testCaseRepository.updateExpectedOutputHash(summary.getId(), hash);
+                }
+                
+                manifest.append(number).append(' ')
+                        .append(summary.getId()).append(' ')
+                        .append(summary.getPoints()).append(' ')
+                        .append(hash != null ? hash : "-").append('\n');
+            }
+            Files.writeString(staging.resolve(MANIFEST), manifest.toString(), StandardCharsets.UTF_8);
+            
+            // The manifest marks a complete set, so it only becomes visible with the atomic move
+            deleteDirectory(directory.toFile());
+            Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Materialized {} test cases for problem {} version {}", summaries.size(), problemId, version);
+            return readManifest(problemId, version, directory);
+        } finally {
+            deleteDirectory(staging.toFile());
+        }
+    }
+    
+    private TestSet readManifest(Long problemId, String version, Path directory) throws IOException {
+        List<TestData> tests = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve(MANIFEST), StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length < 4) {
+                continue;
+            }
+            int number = Integer.parseInt(fields[0]);
+            tests.add(new TestData(
+                    number,
+                    Long.parseLong(fields[1]),
+                    Integer.parseInt(fields[2]),
+                    directory.resolve(number + ".in"),
+                    directory.resolve(number + ".out"),
+                    "-".equals(fields[3]) ? null : fields[3]));
+        }
+        return new TestSet(problemId, version, directory, tests);
+    }
+    
+    // Old versions still mounted by a running submission are removed when it releases them
+    private void removeSupersededVersions(Long problemId, String version) {
+        File[] directories = root.resolve(String.valueOf(problemId)).toFile().listFiles(File::isDirectory);
+        if (directories == null) {
+            return;
+        }
+        for (File directory : directories) {
+            if (directory.getName().equals(version)) {
+                continue;
+            }
+            TestSet testSet = testSets.get(directory.toPath());
+            if (testSet != null && testSet.users > 0) {
+                continue;
+            }
+            testSets.remove(directory.toPath());
+            deleteDirectory(directory);
+        }
+    }
+    
+    private ReentrantLock lock(Long problemId) {
+        return problemLocks.computeIfAbsent(problemId, id -> new ReentrantLock());
+    }
+    
+    private void deleteDirectory(File directory) {
+        if (directory.exists()) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        deleteDirectory(file);
+                    } else {
+                        file.delete();
+                    }
+                }
+            }
+            directory.delete();
+        }
+    }
+    
+    @Getter
+    public static class TestSet {
+        private final Long problemId;
+        private final String version;
+        private final Path directory;
+        private final List<TestData> tests;
+        private int users = 0;
+        
+        TestSet(Long problemId, String version, Path directory, List<TestData> tests) {
+            this.problemId = problemId;
+            this.version = version;
+            this.directory = directory;
+            this.tests = tests;
+        }
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class TestData {
+        private int number;
+        private Long testCaseId;
+        private Integer points;
+        private Path inputFile;
+        private Path expectedOutputFile;
+        private String expectedOutputHash;
+    }
+    
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.model.Problem;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.model.Submission.Status;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finished verdicts keyed by (source hash, problem, test-set version, limits); a changed
+// test set produces a new version and therefore never hits an old verdict
+@Component
+public class VerdictCache {
+    
+    // Runtime errors are left out: stack depth, races and address randomization can make them flaky
+    private static final Set<Status> CACHEABLE = EnumSet.of(Status.ACCEPTED, Status.WRONG_ANSWER,
+            Status.MEMORY_LIMIT_EXCEEDED, Status.OUTPUT_LIMIT_EXCEEDED, Status.COMPILATION_ERROR);
+    
+    private final JudgeConfig judgeConfig;
+    private final Map<String, CachedVerdict> verdicts;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public VerdictCache(JudgeConfig judgeConfig) {
+        this.judgeConfig = judgeConfig;
+        this.verdicts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedVerdict> eldest) {
+                return size() > judgeConfig.getCache().getVerdictMaxEntries();
+            }
+        };
+    }
+    
+    public String key(Submission submission, Problem problem, String testSetVersion) {
+        return CompileCache.sha256(
+                submission.getLanguage().name(),
+                submission.getCode(),
+                String.valueOf(problem.getId()),
+                testSetVersion,
+                String.valueOf(problem.getTimeLimitMs()),
+                String.valueOf(problem.getMemoryLimitMb()));
+    }
+    
+    public synchronized Optional<CachedVerdict> get(String key) {
+        CachedVerdict verdict = verdicts.get(key);
+        if (verdict == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(verdict);
+    }
+    
+    // Only verdicts a completed execution decides the same way every time are reused; time limits,
+    // runtime errors, infrastructure failures and anything else are always judged again
+    public synchronized void put(String key, Submission submission) {
+        Status status = submission.getStatus();
+        if (!CACHEABLE.contains(status)) {
+            return;
+        }
+        verdicts.put(key, CachedVerdict.builder()
+                .status(status)
+                .result(submission.getResult())
+                .score(submission.getScore())
+                .testCasesPassed(submission.getTestCasesPassed())
+                .totalTestCases(submission.getTotalTestCases())
+                .executionTimeMs(submission.getExecutionTimeMs())
+                .memoryUsedMb(submission.getMemoryUsedMb())
+                .errorMessage(submission.getErrorMessage())
+                .build());
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public synchronized int size() {
+        return verdicts.size();
+    }
+    
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class CachedVerdict {
+        private Status status;
+        private String result;
+        private Integer score;
+        private Integer testCasesPassed;
+        private Integer totalTestCases;
+        private Integer executionTimeMs;
+        private Integer memoryUsedMb;
+        private String errorMessage;
+    }
+}
@@ -0,0 +1,118 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.dto.response.JudgeWorkerResponse;
+import com.shodhai.contest.exception.ResourceNotFoundException;
+import com.shodhai.contest.model.JudgeWorker;
+import com.shodhai.contest.repository.JudgeWorkerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Registers this process in judge_workers when it judges, and lets any node drain or resume a
+// worker through the table: the worker picks up its status on the next heartbeat.
+@Component
+@Slf4j
+public class WorkerRegistry {
+    
+    private final JudgeConfig judgeConfig;
+    private final JudgeWorkerRepository judgeWorkerRepository;
+    private final SubmissionQueue submissionQueue;
+    private final ConcurrencyController concurrencyController;
+    private volatile boolean registered = false;
+    
+    public WorkerRegistry(JudgeConfig judgeConfig, JudgeWorkerRepository judgeWorkerRepository,
+            SubmissionQueue submissionQueue, ConcurrencyController concurrencyController) {
+        this.judgeConfig = judgeConfig;
+        this.judgeWorkerRepository = judgeWorkerRepository;
+        this.submissionQueue = submissionQueue;
+        this.concurrencyController = concurrencyController;
+    }
+    
+    @PostConstruct
+    public void register() {
+        if (!judgeConfig.isJudging()) {
+            return;
+        }
+        judgeWorkerRepository.register(submissionQueue.getLeaseOwner(), judgeConfig.getNodeId(),
+                concurrencyController.getLimit());
+        registered = true;
+        log.info("Registered judge worker {}", submissionQueue.getLeaseOwner());
+    }
+    
+    @PreDestroy
+    public void deregister() {
+        if (registered) {
+            judgeWorkerRepository.updateStatus(submissionQueue.getLeaseOwner(), JudgeWorker.Status.OFFLINE.name(),
+                    List.of(JudgeWorker.Status.ACTIVE.name(), JudgeWorker.Status.DRAINING.name(),
+                            JudgeWorker.Status.DRAINED.name()));
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${judge.jobs.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (!registered) {
+            return;
+        }
+        String workerId = submissionQueue.getLeaseOwner();
+        judgeWorkerRepository.heartbeat(workerId, concurrencyController.getLimit(), submissionQueue.getInFlightCount());
+        JudgeWorker.Status status = judgeWorkerRepository.findByWorkerId(workerId)
+                .map(JudgeWorker::getStatus)
+                .orElse(JudgeWorker.Status.ACTIVE);
+        
+        boolean draining = status == JudgeWorker.Status.DRAINING || status == JudgeWorker.Status.DRAINED;
+        if (draining != submissionQueue.isDraining()) {
+            log.info("Judge worker {} {}", workerId, draining ? "draining" : "resumed");
+            submissionQueue.setDraining(draining);
+        }
+        if (status == JudgeWorker.Status.DRAINING && submissionQueue.getInFlightCount() == 0) {
+            judgeWorkerRepository.updateStatus(workerId, JudgeWorker.Status.DRAINED.name(),
+                    List.of(JudgeWorker.Status.DRAINING.name()));
+            log.info("Judge worker {} drained", workerId);
+        }
+        
+        int stale = judgeWorkerRepository.expireStale(judgeConfig.getJobs().getLeaseSeconds());
+        if (stale > 0) {
+            log.warn("Marked {} judge workers offline after missing heartbeats", stale);
+        }
+    }
+    
+    public List<JudgeWorkerResponse> getWorkers() {
+        return judgeWorkerRepository.findAllByOrderByStartedAtDesc().stream()
+                .map(worker -> JudgeWorkerResponse.builder()
+                        .workerId(worker.getWorkerId())
+                        .nodeId(worker.getNodeId())
+                        .status(worker.getStatus().name())
+                        .slots(worker.getSlots())
+                        .inFlight(worker.getInFlight())
+                        .startedAt(worker.getStartedAt())
+                        .lastHeartbeatAt(worker.getLastHeartbeatAt())
+                        .build())
+                .collect(Collectors.toList());
+    }
+    
+    // Stops the worker claiming new jobs; the ones it holds are finished first
+    public void drain(String workerId) {
+        updateStatus(workerId, JudgeWorker.Status.DRAINING, JudgeWorker.Status.ACTIVE);
+    }
+    
+    public void resume(String workerId) {
+        updateStatus(workerId, JudgeWorker.Status.ACTIVE, JudgeWorker.Status.DRAINING, JudgeWorker.Status.DRAINED);
+    }
+    
+    private void updateStatus(String workerId, JudgeWorker.Status status, JudgeWorker.Status... from) {
+        JudgeWorker worker = judgeWorkerRepository.findByWorkerId(workerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Judge worker", "id", workerId));
+        List<String> fromStatuses = Arrays.stream(from).map(Enum::name).collect(Collectors.toList());
+        if (judgeWorkerRepository.updateStatus(workerId, status.name(), fromStatuses) == 0) {
+            throw new IllegalArgumentException("Judge worker " + workerId + " is " + worker.getStatus());
+        }
+        log.info("Judge worker {} set to {}", workerId, status);
+    }
+}
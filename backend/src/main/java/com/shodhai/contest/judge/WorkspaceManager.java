@@ -0,0 +1,148 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.exception.JudgeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Per-submission scratch directories on tmpfs. Directories are emptied by a background
+// reaper and handed out again, so the judge thread never deletes anything itself.
+@Component
+@Slf4j
+public class WorkspaceManager {
+    
+    private final JudgeConfig judgeConfig;
+    private final BlockingQueue<Path> free = new LinkedBlockingQueue<>();
+    private final ExecutorService reaper = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "workspace-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Path root;
+    
+    public WorkspaceManager(JudgeConfig judgeConfig) {
+        this.judgeConfig = judgeConfig;
+    }
+    
+    @PostConstruct
+    public void start() {
+        root = resolveRoot();
+        
+        // Anything already here was left by a crashed run; new workspaces get fresh names
+        // so they can be handed out while the reaper is still removing the old ones
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(root)) {
+            for (Path directory : stale) {
+                reaper.execute(() -> delete(directory));
+            }
+        } catch (IOException e) {
+            log.warn("Could not list stale workspaces in {}: {}", root, e.getMessage());
+        }
+        
+        for (int i = 0; i < judgeConfig.getWorkspace().getPoolSize(); i++) {
+            try {
+                free.offer(Files.createDirectory(newWorkspacePath()));
+            } catch (IOException e) {
+                throw new JudgeException("Failed to create workspace in " + root, e);
+            }
+        }
+        log.info("Workspace pool ready at {} with {} directories", root, free.size());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        reaper.shutdown();
+    }
+    
+    public Path allocate() throws IOException {
+        Path workspace = free.poll();
+        return workspace != null ? workspace : Files.createDirectory(newWorkspacePath());
+    }
+    
+    // The directory is emptied in the background and reused, or removed if the pool is full
+    public void recycle(Path workspace) {
+        if (workspace == null) {
+            return;
+        }
+        reaper.execute(() -> {
+            if (!clear(workspace)) {
+                delete(workspace);
+            } else if (free.size() < judgeConfig.getWorkspace().getPoolSize()) {
+                free.offer(workspace);
+            } else {
+                delete(workspace);
+            }
+        });
+    }
+    
+    // Falls back to the temp dir where tmpfs is not available, e.g. on macOS dev machines.
+    // Each node gets its own directory, so workers sharing a host never clear each other's.
+    private Path resolveRoot() {
+        Path configured = Paths.get(judgeConfig.getWorkspace().getRoot(), judgeConfig.getNodeId());
+        try {
+            return Files.createDirectories(configured);
+        } catch (IOException e) {
+            Path fallback = Paths.get(judgeConfig.getTempDir(), "workspaces");
+            log.warn("Workspace root {} unavailable ({}), using {}", configured, e.getMessage(), fallback);
+            try {
+                return Files.createDirectories(fallback);
+            } catch (IOException fallbackError) {
+                throw new JudgeException("Failed to create workspace root " + fallback, fallbackError);
+            }
+        }
+    }
+    
+    private Path newWorkspacePath() {
+        return root.resolve("ws-" + UUID.randomUUID().toString().substring(0, 8));
+    }
+    
+    private boolean clear(Path workspace) {
+        boolean cleared = true;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(workspace)) {
+            for (Path entry : entries) {
+                cleared &= delete(entry);
+            }
+            return cleared;
+        } catch (IOException e) {
+            log.warn("Failed to clear workspace {}: {}", workspace, e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean delete(Path path) {
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+}
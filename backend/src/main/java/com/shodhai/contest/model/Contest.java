@@ -36,6 +36,14 @@ public class Contest {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
     
+    // Share of judge capacity relative to other contests; judge.quotas.default-weight when null
+    @Column(name = "judge_weight")
+    private Integer judgeWeight;
+    
+    // Fraction of judge workers reserved while the contest has work; judge.quotas.default-min-share when null
+    @Column(name = "judge_min_share")
+    private Double judgeMinShare;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
     },
     indexes = {
         @Index(name = "idx_contest_id", columnList = "contest_id"),
-        @Index(name = "idx_user_id", columnList = "user_id")
+        @Index(name = "idx_user_id", columnList = "user_id"),
+        @Index(name = "idx_contest_total_score", columnList = "contest_id, total_score")
     }
 )
 @Data
@@ -36,15 +37,25 @@ public class ContestParticipant {
     @Column(name = "joined_at", nullable = false, updatable = false)
     private LocalDateTime joinedAt;
     
+    // Totals over the user's contest_problem_results, kept current by ContestResultService
     @Column(name = "total_score")
     private Integer totalScore = 0;
     
+    @Column(name = "problems_solved")
+    private Integer problemsSolved = 0;
+    
+    @Column(name = "last_accepted_at")
+    private LocalDateTime lastAcceptedAt;
+    
     @PrePersist
     protected void onCreate() {
         joinedAt = LocalDateTime.now();
         if (totalScore == null) {
             totalScore = 0;
         }
+        if (problemsSolved == null) {
+            problemsSolved = 0;
+        }
     }
 }
 
@@ -0,0 +1,52 @@
+package com.shodhai.contest.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Best result of a user on a contest problem, upserted with every verdict by ContestResultService
+// so standings and progress are read by key instead of aggregated from submissions
+@Entity
+@Table(name = "contest_problem_results",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_contest_problem_results", columnNames = {"contest_id", "user_id", "problem_id"})
+    }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContestProblemResult {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "contest_id", nullable = false)
+    private Long contestId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "problem_id", nullable = false)
+    private Long problemId;
+    
+    // Best score of any judged submission, partial results included
+    @Column(name = "best_score")
+    private Integer bestScore = 0;
+    
+    // Best score of an accepted submission, what the standings count; null until accepted
+    @Column(name = "accepted_score")
+    private Integer acceptedScore;
+    
+    @Column(name = "first_accepted_at")
+    private LocalDateTime firstAcceptedAt;
+    
+    // Judged submissions, system errors excluded
+    @Column
+    private Integer attempts = 0;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,89 @@
+package com.shodhai.contest.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Durable queue entry for a submission; workers lease rows with FOR UPDATE SKIP LOCKED
+// in the order chosen by JudgeScheduler
+@Entity
+@Table(name = "judge_jobs", indexes = {
+    @Index(name = "idx_judge_jobs_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_judge_jobs_lease_owner", columnList = "lease_owner"),
+    @Index(name = "idx_judge_jobs_rejudge_run", columnList = "rejudge_run_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JudgeJob {
+    
+    public static final int PRIORITY_FIRST_ATTEMPT = 0;
+    public static final int PRIORITY_RETRY = 1;
+    public static final int PRIORITY_BACKGROUND = 2;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "submission_id", nullable = false, unique = true)
+    private Long submissionId;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "problem_id")
+    private Long problemId;
+    
+    @Column(name = "contest_id")
+    private Long contestId;
+    
+    @Column
+    private Integer priority = PRIORITY_FIRST_ATTEMPT;
+    
+    // Test count x time limit, the worst-case judging time of the submission
+    @Column(name = "estimated_cost_ms")
+    private Long estimatedCostMs = 0L;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.QUEUED;
+    
+    @Column(nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    // Set for jobs queued by a bulk rejudge, with the verdict the submission had before it
+    @Column(name = "rejudge_run_id")
+    private Long rejudgeRunId;
+    
+    @Column(name = "previous_status", length = 30)
+    private String previousStatus;
+    
+    @Column(name = "previous_score")
+    private Integer previousScore;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+}
@@ -0,0 +1,48 @@
+package com.shodhai.contest.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// One row per running judge process. Heartbeats keep it fresh; admins drain a worker by setting
+// DRAINING, after which it finishes its jobs, stops claiming and reports DRAINED.
+@Entity
+@Table(name = "judge_workers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JudgeWorker {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // The lease owner of the process, so jobs can be traced back to the worker holding them
+    @Column(name = "worker_id", nullable = false, unique = true, length = 100)
+    private String workerId;
+    
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.ACTIVE;
+    
+    @Column
+    private Integer slots;
+    
+    @Column(name = "in_flight")
+    private Integer inFlight;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "last_heartbeat_at")
+    private LocalDateTime lastHeartbeatAt;
+    
+    public enum Status {
+        ACTIVE, DRAINING, DRAINED, OFFLINE
+    }
+}
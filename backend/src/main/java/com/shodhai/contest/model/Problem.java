@@ -43,6 +43,10 @@ public class Problem {
     @Column(name = "display_order")
     private Integer displayOrder = 0;
     
+    // Overrides the language default for single-container batch judging when set
+    @Column(name = "batch_execution")
+    private Boolean batchExecution;
+    
     @OneToMany(mappedBy = "problem", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<TestCase> testCases = new ArrayList<>();
     
@@ -0,0 +1,69 @@
+package com.shodhai.contest.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// A bulk rejudge of every finished submission matching the filters. Submissions are queued as
+// background jobs in id order, a few at a time; last_submission_id is how far queuing has got.
+@Entity
+@Table(name = "rejudge_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejudgeRun {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Null filters match everything
+    @Column(name = "problem_id")
+    private Long problemId;
+    
+    @Column(name = "contest_id")
+    private Long contestId;
+    
+    @Column(length = 30)
+    private String verdict;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.RUNNING;
+    
+    @Column(name = "total_submissions")
+    private Long totalSubmissions = 0L;
+    
+    @Column(name = "queued_submissions")
+    private Long queuedSubmissions = 0L;
+    
+    @Column(name = "last_submission_id")
+    private Long lastSubmissionId = 0L;
+    
+    // Set once every submission has been queued
+    @Column(name = "all_queued")
+    private Boolean allQueued = false;
+    
+    @Column(name = "changed_submissions")
+    private Long changedSubmissions;
+    
+    @Column(name = "affected_users")
+    private Long affectedUsers;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED
+    }
+}
@@ -0,0 +1,29 @@
+package com.shodhai.contest.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Stage timings of the latest judging attempt of a submission, encoded by JudgeTimeline
+@Entity
+@Table(name = "submission_timelines")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionTimeline {
+    
+    @Id
+    @Column(name = "submission_id")
+    private Long submissionId;
+    
+    @Column
+    private Integer attempt;
+    
+    @Column(name = "enqueued_at")
+    private LocalDateTime enqueuedAt;
+    
+    @Column(columnDefinition = "TEXT")
+    private String events;
+}
@@ -28,6 +28,10 @@ public class TestCase {
     @Column(name = "expected_output", columnDefinition = "TEXT")
     private String expectedOutput;
     
+    // SHA-256 of the normalized expected output, set for very large answers
+    @Column(name = "expected_output_hash", length = 64)
+    private String expectedOutputHash;
+    
     @Column(name = "is_sample", nullable = false)
     private Boolean isSample = false;
     
@@ -2,8 +2,10 @@ package com.shodhai.contest.repository;
 
 import com.shodhai.contest.model.ContestParticipant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,5 +17,62 @@ public interface ContestParticipantRepository extends JpaRepository<ContestParti
     
     @Query("SELECT COUNT(p) FROM ContestParticipant p WHERE p.contest.id = :contestId")
     Long countByContestId(Long contestId);
+    
+    // Sums the user's contest_problem_results into the participant row, which is created for users
+    // that submitted without joining
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO contest_participants AS cp (contest_id, user_id, joined_at, total_score, problems_solved,
+                last_accepted_at)
+            SELECT :contestId, :userId, now(), COALESCE(SUM(r.accepted_score), 0), COUNT(r.first_accepted_at),
+                MAX(r.first_accepted_at)
+            FROM contest_problem_results r
+            WHERE r.contest_id = :contestId AND r.user_id = :userId
+            ON CONFLICT (contest_id, user_id) DO UPDATE SET
+                total_score = EXCLUDED.total_score,
+                problems_solved = EXCLUDED.problems_solved,
+                last_accepted_at = EXCLUDED.last_accepted_at
+            """, nativeQuery = true)
+    int refreshTotals(Long contestId, Long userId);
+    
+    // Same as refreshTotals for every user with a result, after ContestProblemResultRepository.backfill
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO contest_participants AS cp (contest_id, user_id, joined_at, total_score, problems_solved,
+                last_accepted_at)
+            SELECT r.contest_id, r.user_id, now(), COALESCE(SUM(r.accepted_score), 0), COUNT(r.first_accepted_at),
+                MAX(r.first_accepted_at)
+            FROM contest_problem_results r
+            GROUP BY r.contest_id, r.user_id
+            ON CONFLICT (contest_id, user_id) DO UPDATE SET
+                total_score = EXCLUDED.total_score,
+                problems_solved = EXCLUDED.problems_solved,
+                last_accepted_at = EXCLUDED.last_accepted_at
+            """, nativeQuery = true)
+    int refreshAllTotals();
+    
+    // Rejudged verdicts already refresh the totals as they are saved; a final pass once the run ends,
+    // over only the participants with a submission whose verdict or score the rejudge changed
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE contest_participants cp SET
+                total_score = totals.total_score,
+                problems_solved = totals.problems_solved,
+                last_accepted_at = totals.last_accepted_at
+            FROM (
+                SELECT r.contest_id, r.user_id, COALESCE(SUM(r.accepted_score), 0) AS total_score,
+                    COUNT(r.first_accepted_at) AS problems_solved, MAX(r.first_accepted_at) AS last_accepted_at
+                FROM contest_problem_results r
+                WHERE (r.contest_id, r.user_id) IN (
+                    SELECT j.contest_id, j.user_id FROM judge_jobs j
+                    JOIN submissions s ON s.id = j.submission_id
+                    WHERE j.rejudge_run_id = :runId AND j.finished_at IS NOT NULL
+                      AND (s.status <> j.previous_status OR s.score IS DISTINCT FROM j.previous_score))
+                GROUP BY r.contest_id, r.user_id) totals
+            WHERE cp.contest_id = totals.contest_id AND cp.user_id = totals.user_id
+            """, nativeQuery = true)
+    int repairScoresAfterRejudge(Long runId);
 }
-
@@ -0,0 +1,126 @@
+package com.shodhai.contest.repository;
+
+import com.shodhai.contest.model.ContestProblemResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ContestProblemResultRepository extends JpaRepository<ContestProblemResult, Long> {
+    List<ContestProblemResult> findByContestIdAndUserIdOrderByProblemIdAsc(Long contestId, Long userId);
+    
+    // Merges one new verdict into the row; GREATEST and LEAST skip the nulls of a verdict that is not accepted
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO contest_problem_results AS r (contest_id, user_id, problem_id, best_score, accepted_score,
+                first_accepted_at, attempts, updated_at)
+            VALUES (:contestId, :userId, :problemId, :score,
+                CASE WHEN :accepted THEN :score END,
+                CASE WHEN :accepted THEN CAST(:submittedAt AS timestamp) END, 1, now())
+            ON CONFLICT (contest_id, user_id, problem_id) DO UPDATE SET
+                best_score = GREATEST(r.best_score, EXCLUDED.best_score),
+                accepted_score = GREATEST(r.accepted_score, EXCLUDED.accepted_score),
+                first_accepted_at = LEAST(r.first_accepted_at, EXCLUDED.first_accepted_at),
+                attempts = r.attempts + 1,
+                updated_at = now()
+            """, nativeQuery = true)
+    int mergeVerdict(Long contestId, Long userId, Long problemId, int score, boolean accepted,
+            LocalDateTime submittedAt);
+    
+    // Rebuilds the row from the user's submissions, for verdicts that may have replaced an earlier one
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO contest_problem_results AS r (contest_id, user_id, problem_id, best_score, accepted_score,
+                first_accepted_at, attempts, updated_at)
+            SELECT :contestId, :userId, :problemId, COALESCE(MAX(s.score), 0),
+                MAX(s.score) FILTER (WHERE s.status = 'ACCEPTED'),
+                MIN(s.submitted_at) FILTER (WHERE s.status = 'ACCEPTED'), COUNT(*), now()
+            FROM submissions s
+            WHERE s.contest_id = :contestId AND s.user_id = :userId AND s.problem_id = :problemId
+              AND s.status NOT IN ('PENDING', 'RUNNING', 'SYSTEM_ERROR')
+            ON CONFLICT (contest_id, user_id, problem_id) DO UPDATE SET
+                best_score = EXCLUDED.best_score,
+                accepted_score = EXCLUDED.accepted_score,
+                first_accepted_at = EXCLUDED.first_accepted_at,
+                attempts = EXCLUDED.attempts,
+                updated_at = now()
+            """, nativeQuery = true)
+    int recompute(Long contestId, Long userId, Long problemId);
+    
+    // Rebuilds the rows of every user and problem with a submission whose verdict or score a rejudge
+    // run changed, like recompute does for a single verdict
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO contest_problem_results AS r (contest_id, user_id, problem_id, best_score, accepted_score,
+                first_accepted_at, attempts, updated_at)
+            SELECT s.contest_id, s.user_id, s.problem_id, COALESCE(MAX(s.score), 0),
+                MAX(s.score) FILTER (WHERE s.status = 'ACCEPTED'),
+                MIN(s.submitted_at) FILTER (WHERE s.status = 'ACCEPTED'), COUNT(*), now()
+            FROM submissions s
+            WHERE s.status NOT IN ('PENDING', 'RUNNING', 'SYSTEM_ERROR')
+              AND (s.contest_id, s.user_id, s.problem_id) IN (
+                SELECT j.contest_id, j.user_id, j.problem_id FROM judge_jobs j
+                JOIN submissions c ON c.id = j.submission_id
+                WHERE j.rejudge_run_id = :runId AND j.finished_at IS NOT NULL
+                  AND (c.status <> j.previous_status OR c.score IS DISTINCT FROM j.previous_score))
+            GROUP BY s.contest_id, s.user_id, s.problem_id
+            ON CONFLICT (contest_id, user_id, problem_id) DO UPDATE SET
+                best_score = EXCLUDED.best_score,
+                accepted_score = EXCLUDED.accepted_score,
+                first_accepted_at = EXCLUDED.first_accepted_at,
+                attempts = EXCLUDED.attempts,
+                updated_at = now()
+            """, nativeQuery = true)
+    int recomputeAfterRejudge(Long runId);
+    
+    // One-off fill from the submissions judged before this table existed
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO contest_problem_results (contest_id, user_id, problem_id, best_score, accepted_score,
+                first_accepted_at, attempts, updated_at)
+            SELECT s.contest_id, s.user_id, s.problem_id, COALESCE(MAX(s.score), 0),
+                MAX(s.score) FILTER (WHERE s.status = 'ACCEPTED'),
+                MIN(s.submitted_at) FILTER (WHERE s.status = 'ACCEPTED'), COUNT(*), now()
+            FROM submissions s
+            WHERE s.status NOT IN ('PENDING', 'RUNNING', 'SYSTEM_ERROR')
+            GROUP BY s.contest_id, s.user_id, s.problem_id
+            ON CONFLICT (contest_id, user_id, problem_id) DO NOTHING
+            """, nativeQuery = true)
+    int backfill();
+    
+    // Accepted results per user and problem, what standings are built from; a range of the unique index
+    @Query(value = """
+            SELECT r.user_id AS "userId", u.username AS "username", r.problem_id AS "problemId",
+                   r.accepted_score AS "bestScore", r.first_accepted_at AS "firstAcceptedAt"
+            FROM contest_problem_results r
+            JOIN users u ON u.id = r.user_id
+            WHERE r.contest_id = :contestId AND r.first_accepted_at IS NOT NULL
+            """, nativeQuery = true)
+    List<BestAccepted> findBestAccepted(Long contestId);
+    
+    @Query(value = """
+            SELECT r.user_id AS "userId", u.username AS "username", r.problem_id AS "problemId",
+                   r.accepted_score AS "bestScore", r.first_accepted_at AS "firstAcceptedAt"
+            FROM contest_problem_results r
+            JOIN users u ON u.id = r.user_id
+            WHERE r.contest_id = :contestId AND r.user_id = :userId AND r.first_accepted_at IS NOT NULL
+            """, nativeQuery = true)
+    List<BestAccepted> findBestAcceptedByUser(Long contestId, Long userId);
+    
+    interface BestAccepted {
+        Long getUserId();
+        String getUsername();
+        Long getProblemId();
+        Integer getBestScore();
+        Timestamp getFirstAcceptedAt();
+    }
+}
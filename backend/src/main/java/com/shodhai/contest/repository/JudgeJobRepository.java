@@ -0,0 +1,236 @@
+package com.shodhai.contest.repository;
+
+import com.shodhai.contest.model.JudgeJob;
+import com.shodhai.contest.model.JudgeJob.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+
+@Repository
+public interface JudgeJobRepository extends JpaRepository<JudgeJob, Long> {
+    long countByStatus(Status status);
+    
+    // Queued jobs other than background ones, which never hold up a live submission
+    @Query(value = "SELECT COUNT(*) FROM judge_jobs WHERE status = 'QUEUED' AND COALESCE(priority, 0) < 2",
+            nativeQuery = true)
+    long countLiveQueued();
+    
+    // Background jobs queued or running anywhere, the ones a bulk rejudge has in flight
+    @Query(value = "SELECT COUNT(*) FROM judge_jobs WHERE status IN ('QUEUED', 'RUNNING') AND priority >= 2",
+            nativeQuery = true)
+    long countBackgroundInFlight();
+    
+    // Leases up to :limit jobs in fair-share order; rows locked by other workers are skipped, not waited on.
+    // Each user's queued jobs get a finish tag: the cost of their running jobs plus the running sum of
+    // their queued costs, first attempts before retries and retries weighted by :retryWeight. Claiming
+    // the smallest tags first interleaves users, so a user with 50 queued jobs only delays their own.
+    // Background jobs come after all others. Expired leases are claimable again until out of attempts.
+    @Transactional
+    @Query(value = """
+            WITH running AS (
+                SELECT user_id, SUM(COALESCE(estimated_cost_ms, 0)) AS cost FROM judge_jobs
+                WHERE status = 'RUNNING' AND lease_expires_at >= now()
+                GROUP BY user_id),
+            candidates AS (
+                SELECT j.id, COALESCE(j.priority, 0) AS priority, j.created_at,
+                       COALESCE(r.cost, 0) + SUM(COALESCE(j.estimated_cost_ms, 0)
+                           * CASE WHEN COALESCE(j.priority, 0) = 0 THEN 1 ELSE :retryWeight END)
+                           OVER (PARTITION BY j.user_id ORDER BY COALESCE(j.priority, 0), j.created_at, j.id)
+                           AS finish_tag
+                FROM judge_jobs j
+                LEFT JOIN running r ON r.user_id = j.user_id
+                WHERE (j.status = 'QUEUED' OR (j.status = 'RUNNING' AND j.lease_expires_at < now()))
+                  AND j.attempts < :maxAttempts
+                  AND COALESCE(j.contest_id, 0) = :contestId)
+            UPDATE judge_jobs SET status = 'RUNNING', lease_owner = :owner,
+                   lease_expires_at = now() + make_interval(secs => :leaseSeconds),
+                   attempts = attempts + 1, started_at = now()
+            WHERE id IN (
+                SELECT j.id FROM judge_jobs j
+                JOIN candidates c ON c.id = j.id
+                ORDER BY c.priority >= 2, c.finish_tag, c.created_at
+                LIMIT :limit
+                FOR UPDATE OF j SKIP LOCKED)
+            RETURNING submission_id AS "submissionId", attempts AS "attempts", COALESCE(priority, 0) AS "priority",
+                      CAST(EXTRACT(EPOCH FROM now() - created_at) * 1000 AS bigint) AS "waitMs"
+            """, nativeQuery = true)
+    List<ClaimedJob> claim(String owner, int leaseSeconds, int maxAttempts, double retryWeight, Long contestId, int limit);
+    
+    // Claimable jobs per contest; jobs without a contest are reported under contest 0
+    @Query(value = """
+            SELECT COALESCE(contest_id, 0) AS "contestId", COUNT(*) AS "queued" FROM judge_jobs
+            WHERE (status = 'QUEUED' OR (status = 'RUNNING' AND lease_expires_at < now()))
+              AND attempts < :maxAttempts
+            GROUP BY COALESCE(contest_id, 0)
+            """, nativeQuery = true)
+    List<ContestDemand> countClaimableByContest(int maxAttempts);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_jobs SET lease_expires_at = now() + make_interval(secs => :leaseSeconds)
+            WHERE lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int extendLeases(String owner, int leaseSeconds);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_jobs SET status = 'DONE', lease_owner = NULL, lease_expires_at = NULL, finished_at = now()
+            WHERE submission_id = :submissionId AND lease_owner = :owner
+            """, nativeQuery = true)
+    int complete(Long submissionId, String owner);
+    
+    // A failed attempt goes back to the queue, or fails for good once out of attempts
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_jobs SET status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'QUEUED' END,
+                   lease_owner = NULL, lease_expires_at = NULL,
+                   finished_at = CASE WHEN attempts >= :maxAttempts THEN now() END
+            WHERE submission_id = :submissionId AND lease_owner = :owner
+            """, nativeQuery = true)
+    int retry(Long submissionId, String owner, int maxAttempts);
+    
+    // Hands leases whose owner starts with :ownerPrefix back to the queue
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_jobs SET status = 'QUEUED', lease_owner = NULL, lease_expires_at = NULL
+            WHERE status = 'RUNNING' AND starts_with(lease_owner, :ownerPrefix)
+            """, nativeQuery = true)
+    int requeueLeases(String ownerPrefix);
+    
+    // Jobs that kept losing their lease are given up on; the judge fails their submissions the
+    // same way it finishes any other, returned here
+    @Transactional
+    @Query(value = """
+            UPDATE judge_jobs SET status = 'FAILED', lease_owner = NULL, finished_at = now()
+            WHERE status = 'RUNNING' AND lease_expires_at < now() AND attempts >= :maxAttempts
+            RETURNING submission_id
+            """, nativeQuery = true)
+    List<Long> failExhausted(int maxAttempts);
+    
+    // Submissions queued before jobs were persisted, or whose job row was never written
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO judge_jobs (submission_id, user_id, problem_id, contest_id, priority, estimated_cost_ms,
+                                    status, attempts, created_at)
+            SELECT s.id, s.user_id, s.problem_id, s.contest_id, 0,
+                   (SELECT COUNT(*) FROM test_cases t WHERE t.problem_id = s.problem_id) * p.time_limit_ms,
+                   'QUEUED', 0, s.submitted_at
+            FROM submissions s
+            JOIN problems p ON p.id = s.problem_id
+            WHERE s.status IN ('PENDING', 'RUNNING')
+              AND NOT EXISTS (SELECT 1 FROM judge_jobs j WHERE j.submission_id = s.id)
+            """, nativeQuery = true)
+    int enqueueOrphanedSubmissions();
+    
+    // NOTIFY is transactional, so listeners hear about the job only once it is committed
+    @Transactional
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_notify('judge_jobs', '')) n", nativeQuery = true)
+    long notifyJobQueued();
+    
+    // Jobs queued no later than this one, itself included; 0 once it is no longer queued.
+    // Claims follow fair-share order, so this is an estimate rather than an exact rank.
+    // Background jobs are claimed after all others and do not count.
+    @Query(value = """
+            SELECT COUNT(*) FROM judge_jobs j
+            JOIN judge_jobs me ON me.submission_id = :submissionId AND me.status = 'QUEUED'
+            WHERE j.status = 'QUEUED' AND j.created_at <= me.created_at AND COALESCE(j.priority, 0) < 2
+            """, nativeQuery = true)
+    long findQueuePosition(Long submissionId);
+    
+    // Recent cluster-wide throughput, measured on the database clock like finished_at itself
+    @Query(value = """
+            SELECT COUNT(*) FROM judge_jobs
+            WHERE status = 'DONE' AND finished_at > now() - make_interval(secs => :windowSeconds)
+            """, nativeQuery = true)
+    long countFinishedWithin(int windowSeconds);
+    
+    // Queues the next :limit finished submissions after :afterId that match a rejudge's filters (0 and ''
+    // match everything) as background jobs, recording the verdict each had. Submissions already queued
+    // or running are left alone; existing job rows are reset rather than duplicated.
+    @Transactional
+    @Query(value = """
+            INSERT INTO judge_jobs (submission_id, user_id, problem_id, contest_id, priority, estimated_cost_ms,
+                                    status, attempts, created_at, rejudge_run_id, previous_status, previous_score)
+            SELECT s.id, s.user_id, s.problem_id, s.contest_id, 2,
+                   (SELECT COUNT(*) FROM test_cases t WHERE t.problem_id = s.problem_id) * p.time_limit_ms,
+                   'QUEUED', 0, now(), :runId, s.status, s.score
+            FROM submissions s
+            JOIN problems p ON p.id = s.problem_id
+            WHERE s.id > :afterId
+              AND (:problemId = 0 OR s.problem_id = :problemId)
+              AND (:contestId = 0 OR s.contest_id = :contestId)
+              AND (:verdict = '' OR s.status = :verdict)
+              AND s.status NOT IN ('PENDING', 'RUNNING')
+              AND NOT EXISTS (SELECT 1 FROM judge_jobs j
+                              WHERE j.submission_id = s.id AND j.status IN ('QUEUED', 'RUNNING'))
+            ORDER BY s.id
+            LIMIT :limit
+            ON CONFLICT (submission_id) DO UPDATE SET
+                priority = EXCLUDED.priority, estimated_cost_ms = EXCLUDED.estimated_cost_ms,
+                status = 'QUEUED', attempts = 0, lease_owner = NULL, lease_expires_at = NULL,
+                created_at = now(), started_at = NULL, finished_at = NULL,
+                rejudge_run_id = EXCLUDED.rejudge_run_id, previous_status = EXCLUDED.previous_status,
+                previous_score = EXCLUDED.previous_score
+            RETURNING submission_id
+            """, nativeQuery = true)
+    List<Long> enqueueRejudge(Long runId, Long problemId, Long contestId, String verdict, Long afterId, int limit);
+    
+    // Cancelled jobs are closed without finished_at, so they count neither as judged nor as throughput
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_jobs SET status = 'DONE'
+            WHERE rejudge_run_id = :runId AND status = 'QUEUED'
+            """, nativeQuery = true)
+    int cancelRejudge(Long runId);
+    
+    @Query(value = """
+            SELECT COUNT(*) FILTER (WHERE j.finished_at IS NOT NULL) AS "judged",
+                   COUNT(*) FILTER (WHERE j.status IN ('QUEUED', 'RUNNING')) AS "pending",
+                   COUNT(*) FILTER (WHERE j.finished_at IS NOT NULL AND (s.status <> j.previous_status
+                       OR s.score IS DISTINCT FROM j.previous_score)) AS "changed",
+                   COUNT(DISTINCT j.user_id) FILTER (WHERE j.finished_at IS NOT NULL AND (s.status <> j.previous_status
+                       OR s.score IS DISTINCT FROM j.previous_score)) AS "affectedUsers"
+            FROM judge_jobs j
+            JOIN submissions s ON s.id = j.submission_id
+            WHERE j.rejudge_run_id = :runId
+            """, nativeQuery = true)
+    RejudgeProgress findRejudgeProgress(Long runId);
+    
+    // Contests with a submission whose verdict or score the rejudge run changed
+    @Query(value = """
+            SELECT DISTINCT j.contest_id FROM judge_jobs j
+            JOIN submissions s ON s.id = j.submission_id
+            WHERE j.rejudge_run_id = :runId AND j.finished_at IS NOT NULL AND j.contest_id IS NOT NULL
+              AND (s.status <> j.previous_status OR s.score IS DISTINCT FROM j.previous_score)
+            """, nativeQuery = true)
+    List<Long> findRejudgedContests(Long runId);
+    
+    interface ClaimedJob {
+        Long getSubmissionId();
+        Integer getAttempts();
+        Integer getPriority();
+        // Time since the job was queued, measured on the database clock
+        Long getWaitMs();
+    }
+    
+    interface ContestDemand {
+        Long getContestId();
+        Long getQueued();
+    }
+    
+    interface RejudgeProgress {
+        Long getJudged();
+        Long getPending();
+        Long getChanged();
+        Long getAffectedUsers();
+    }
+}
@@ -0,0 +1,50 @@
+package com.shodhai.contest.repository;
+
+import com.shodhai.contest.model.JudgeWorker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
+
+// Timestamps are written with the database clock, the same one lease expiry is checked against
+@Repository
+public interface JudgeWorkerRepository extends JpaRepository<JudgeWorker, Long> {
+    Optional<JudgeWorker> findByWorkerId(String workerId);
+    List<JudgeWorker> findAllByOrderByStartedAtDesc();
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO judge_workers (worker_id, node_id, status, slots, in_flight, started_at, last_heartbeat_at)
+            VALUES (:workerId, :nodeId, 'ACTIVE', :slots, 0, now(), now())
+            """, nativeQuery = true)
+    int register(String workerId, String nodeId, int slots);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_workers SET last_heartbeat_at = now(), slots = :slots, in_flight = :inFlight
+            WHERE worker_id = :workerId
+            """, nativeQuery = true)
+    int heartbeat(String workerId, int slots, int inFlight);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_workers SET status = :status
+            WHERE worker_id = :workerId AND status IN (:fromStatuses)
+            """, nativeQuery = true)
+    int updateStatus(String workerId, String status, List<String> fromStatuses);
+    
+    // Workers that stopped heartbeating; their leases expire and are claimed by others
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE judge_workers SET status = 'OFFLINE'
+            WHERE status <> 'OFFLINE' AND last_heartbeat_at < now() - make_interval(secs => :staleSeconds)
+            """, nativeQuery = true)
+    int expireStale(int staleSeconds);
+}
@@ -0,0 +1,25 @@
+package com.shodhai.contest.repository;
+
+import com.shodhai.contest.model.RejudgeRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RejudgeRunRepository extends JpaRepository<RejudgeRun, Long> {
+    List<RejudgeRun> findAllByOrderByCreatedAtDesc();
+    
+    // The oldest active run, locked so only one node advances it at a time; must be called in a transaction
+    @Query(value = """
+            SELECT * FROM rejudge_runs WHERE status = 'RUNNING'
+            ORDER BY id LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<RejudgeRun> lockOldestRunning();
+    
+    // Waits for a node that is advancing the run, so a cancel never races its queuing
+    @Query(value = "SELECT * FROM rejudge_runs WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<RejudgeRun> lockById(Long id);
+}
@@ -1,10 +1,13 @@
 package com.shodhai.contest.repository;
 
 import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.model.Submission.Language;
 import com.shodhai.contest.model.Submission.Status;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,11 +15,57 @@ import java.util.Optional;
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     List<Submission> findByUserIdOrderBySubmittedAtDesc(Long userId);
     List<Submission> findByContestIdAndUserIdOrderBySubmittedAtDesc(Long contestId, Long userId);
+    long countByUserIdAndProblemId(Long userId, Long problemId);
+    
+    // Everything a status read returns, without the code
+    @Query("""
+            SELECT s.id AS id, s.user.id AS userId, s.problem.id AS problemId, s.contest.id AS contestId,
+                   s.language AS language, s.status AS status, s.result AS result, s.score AS score,
+                   s.executionTimeMs AS executionTimeMs, s.memoryUsedMb AS memoryUsedMb,
+                   s.errorMessage AS errorMessage, s.testCasesPassed AS testCasesPassed,
+                   s.totalTestCases AS totalTestCases, s.submittedAt AS submittedAt, s.completedAt AS completedAt
+            FROM Submission s WHERE s.id = :submissionId
+            """)
+    Optional<StatusView> findStatusById(Long submissionId);
     
     @Query("SELECT s FROM Submission s WHERE s.problem.id = :problemId AND s.user.id = :userId AND s.status = :status")
     List<Submission> findByProblemIdAndUserIdAndStatus(Long problemId, Long userId, Status status);
     
-    @Query("SELECT COALESCE(MAX(s.score), 0) FROM Submission s WHERE s.problem.id = :problemId AND s.user.id = :userId")
-    Integer findMaxScoreByProblemIdAndUserId(Long problemId, Long userId);
+    // Finished submissions a rejudge with these filters covers; 0 and '' match everything
+    @Query(value = """
+            SELECT COUNT(*) FROM submissions s
+            WHERE (:problemId = 0 OR s.problem_id = :problemId)
+              AND (:contestId = 0 OR s.contest_id = :contestId)
+              AND (:verdict = '' OR s.status = :verdict)
+              AND s.status NOT IN ('PENDING', 'RUNNING')
+            """, nativeQuery = true)
+    long countRejudgeCandidates(Long problemId, Long contestId, String verdict);
+    
+    // Tells the leaderboards on every node about a verdict, see LeaderboardService.applyNotification
+    @Transactional
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_notify('contest_verdicts', :payload)) n", nativeQuery = true)
+    long notifyVerdict(String payload);
+    
+    // Status transitions for the submitting user's stream, see SubmissionStatusStreamService
+    @Transactional
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_notify('submission_status', :payload)) n", nativeQuery = true)
+    long notifyStatus(String payload);
+    
+    interface StatusView {
+        Long getId();
+        Long getUserId();
+        Long getProblemId();
+        Long getContestId();
+        Language getLanguage();
+        Status getStatus();
+        String getResult();
+        Integer getScore();
+        Integer getExecutionTimeMs();
+        Integer getMemoryUsedMb();
+        String getErrorMessage();
+        Integer getTestCasesPassed();
+        Integer getTotalTestCases();
+        LocalDateTime getSubmittedAt();
+        LocalDateTime getCompletedAt();
+    }
 }
-
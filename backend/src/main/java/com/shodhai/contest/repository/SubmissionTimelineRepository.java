@@ -0,0 +1,24 @@
+package com.shodhai.contest.repository;
+
+import com.shodhai.contest.model.SubmissionTimeline;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+
+@Repository
+public interface SubmissionTimelineRepository extends JpaRepository<SubmissionTimeline, Long> {
+    
+    // One statement per attempt; a retry or rejudge replaces the earlier timeline
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO submission_timelines (submission_id, attempt, enqueued_at, events)
+            VALUES (:submissionId, :attempt, :enqueuedAt, :events)
+            ON CONFLICT (submission_id) DO UPDATE SET
+                attempt = EXCLUDED.attempt, enqueued_at = EXCLUDED.enqueued_at, events = EXCLUDED.events
+            """, nativeQuery = true)
+    int upsert(Long submissionId, int attempt, LocalDateTime enqueuedAt, String events);
+}
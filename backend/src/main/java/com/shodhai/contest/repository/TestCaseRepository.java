@@ -2,12 +2,51 @@ package com.shodhai.contest.repository;
 
 import com.shodhai.contest.model.TestCase;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Repository
 public interface TestCaseRepository extends JpaRepository<TestCase, Long> {
     List<TestCase> findByProblemIdOrderByDisplayOrderAsc(Long problemId);
     List<TestCase> findByProblemIdAndIsSampleTrueOrderByDisplayOrderAsc(Long problemId);
+    long countByProblemId(Long problemId);
+    
+    // Fingerprint of every test case row of a problem, computed in the database so test data never leaves it
+    @Query(value = """
+            SELECT md5(COALESCE(string_agg(
+                       id || ':' || points || ':' || COALESCE(display_order, 0) || ':'
+                       || md5(COALESCE(input, '')) || ':' || md5(COALESCE(expected_output, '')),
+                       ',' ORDER BY id), ''))
+            FROM test_cases
+            WHERE problem_id = :problemId
+            """, nativeQuery = true)
+    String findTestSetVersion(Long problemId);
+    
+    // Judging metadata without the TEXT columns, in the order tests are numbered on disk
+    @Query("SELECT t.id AS id, t.points AS points, t.expectedOutputHash AS expectedOutputHash FROM TestCase t " +
+           "WHERE t.problem.id = :problemId ORDER BY t.displayOrder ASC, t.id ASC")
+    List<TestCaseSummary> findSummariesByProblemId(Long problemId);
+    
+    @Query("SELECT t.input AS input, t.expectedOutput AS expectedOutput FROM TestCase t WHERE t.id = :id")
+    TestCaseData findDataById(Long id);
+    
+    // Called while materializing test data, which runs outside any transaction
+    @Transactional
+    @Modifying
+    @Query("UPDATE TestCase t SET t.expectedOutputHash = :hash WHERE t.id = :id")
+    void updateExpectedOutputHash(Long id, String hash);
+    
+    interface TestCaseSummary {
+        Long getId();
+        Integer getPoints();
+        String getExpectedOutputHash();
+    }
+    
+    interface TestCaseData {
+        String getInput();
+        String getExpectedOutput();
+    }
 }
-
@@ -0,0 +1,111 @@
+package com.shodhai.contest.service;
+
+import com.shodhai.contest.dto.response.ContestProgressResponse;
+import com.shodhai.contest.dto.response.ContestProgressResponse.ProblemProgress;
+import com.shodhai.contest.exception.ResourceNotFoundException;
+import com.shodhai.contest.model.ContestParticipant;
+import com.shodhai.contest.model.ContestProblemResult;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.model.Submission.Status;
+import com.shodhai.contest.repository.ContestParticipantRepository;
+import com.shodhai.contest.repository.ContestProblemResultRepository;
+import com.shodhai.contest.repository.ContestRepository;
+import com.shodhai.contest.repository.SubmissionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Keeps contest_problem_results and the participant totals in step with verdicts. Both are written
+// in the transaction that saves the verdict, so standings and progress never need to aggregate
+// a contest's submissions.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContestResultService {
+    
+    private final SubmissionRepository submissionRepository;
+    private final ContestProblemResultRepository resultRepository;
+    private final ContestParticipantRepository participantRepository;
+    private final ContestRepository contestRepository;
+    
+    // Fills the tables from existing submissions when they were judged before the tables existed
+    @PostConstruct
+    public void backfill() {
+        try {
+            if (resultRepository.count() > 0 || submissionRepository.count() == 0) {
+                return;
+            }
+            int results = resultRepository.backfill();
+            int participants = participantRepository.refreshAllTotals();
+            log.info("Backfilled {} contest results and {} participant totals from submissions",
+                    results, participants);
+        } catch (Exception e) {
+            log.warn("Failed to backfill contest results: {}", e.getMessage());
+        }
+    }
+    
+    // A live verdict is merged into the user's result for the problem. A rejudged one may lower it,
+    // so the result is rebuilt from that user's submissions to the problem instead.
+    @Transactional
+    public void recordVerdict(Submission submission, boolean rejudge) {
+        submissionRepository.saveAndFlush(submission);
+        Long contestId = submission.getContest().getId();
+        Long userId = submission.getUser().getId();
+        Long problemId = submission.getProblem().getId();
+        boolean accepted = submission.getStatus() == Status.ACCEPTED;
+        if (rejudge) {
+            resultRepository.recompute(contestId, userId, problemId);
+        } else if (submission.getStatus() != Status.SYSTEM_ERROR) {
+            int score = submission.getScore() != null ? submission.getScore() : 0;
+            resultRepository.mergeVerdict(contestId, userId, problemId, score, accepted, submission.getSubmittedAt());
+        }
+        // Only accepted results count towards the totals
+        if (rejudge || accepted) {
+            participantRepository.refreshTotals(contestId, userId);
+        }
+    }
+    
+    public List<ContestProblemResultRepository.BestAccepted> getBestAccepted(Long contestId) {
+        return resultRepository.findBestAccepted(contestId);
+    }
+    
+    public List<ContestProblemResultRepository.BestAccepted> getBestAccepted(Long contestId, Long userId) {
+        return resultRepository.findBestAcceptedByUser(contestId, userId);
+    }
+    
+    public ContestProgressResponse getProgress(Long contestId, Long userId) {
+        if (!contestRepository.existsById(contestId)) {
+            throw new ResourceNotFoundException("Contest", "id", contestId);
+        }
+        Optional<ContestParticipant> participant = participantRepository.findByContestIdAndUserId(contestId, userId);
+        List<ProblemProgress> problems = resultRepository.findByContestIdAndUserIdOrderByProblemIdAsc(contestId, userId)
+                .stream()
+                .map(this::toProgress)
+                .collect(Collectors.toList());
+        
+        return ContestProgressResponse.builder()
+                .contestId(contestId)
+                .userId(userId)
+                .totalScore(participant.map(ContestParticipant::getTotalScore).orElse(0))
+                .problemsSolved(participant.map(ContestParticipant::getProblemsSolved).orElse(0))
+                .lastAcceptedAt(participant.map(ContestParticipant::getLastAcceptedAt).orElse(null))
+                .problems(problems)
+                .build();
+    }
+    
+    private ProblemProgress toProgress(ContestProblemResult result) {
+        return ProblemProgress.builder()
+                .problemId(result.getProblemId())
+                .bestScore(result.getBestScore())
+                .accepted(result.getFirstAcceptedAt() != null)
+                .firstAcceptedAt(result.getFirstAcceptedAt())
+                .attempts(result.getAttempts())
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.shodhai.contest.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// One contest's ranking held in memory: each user's best accepted score and first accept time per
+// problem, and the users ordered like the leaderboard query orders them - total score descending,
+// then the latest of those first accept times ascending.
+class ContestStandings {
+    
+    static final Comparator<Standing> ORDER = Comparator.comparingInt(Standing::getTotalScore).reversed()
+            .thenComparing(Standing::getLastAcceptedAt)
+            .thenComparing(Standing::getUserId);
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final Map<Long, UserScores> users = new HashMap<>();
+    private final OrderStatisticTree<Standing> ranking = new OrderStatisticTree<>(ORDER);
+    private volatile boolean loaded = false;
+    private volatile LocalDateTime lastUpdated = LocalDateTime.now();
+    
+    // The first caller runs the loader, later ones wait for it; results merged meanwhile are kept
+    void ensureLoaded(Consumer<ContestStandings> loader) {
+        if (loaded) {
+            return;
+        }
+        loadLock.lock();
+        try {
+            if (!loaded) {
+                loader.accept(this);
+                loaded = true;
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+    
+    // Scores only go up and first accept times only go back, so accepted results can be merged in
+    // any order and more than once. username may be null for a user already on the board; a new user
+    // without one is not added and false is returned, so the board never shows a nameless entry.
+    boolean applyAccepted(Long userId, String username, Long problemId, int score, LocalDateTime submittedAt) {
+        lock.writeLock().lock();
+        try {
+            UserScores scores = users.get(userId);
+            if (scores == null) {
+                if (username == null) {
+                    return false;
+                }
+                scores = new UserScores(username);
+                users.put(userId, scores);
+            }
+            Standing previous = scores.standing;
+            ProblemBest best = scores.problems.get(problemId);
+            if (best == null) {
+                scores.problems.put(problemId, new ProblemBest(score, submittedAt));
+            } else if (score > best.score || submittedAt.isBefore(best.firstAcceptedAt)) {
+                scores.problems.put(problemId, new ProblemBest(Math.max(score, best.score),
+                        submittedAt.isBefore(best.firstAcceptedAt) ? submittedAt : best.firstAcceptedAt));
+            } else {
+                return true;
+            }
+            reposition(userId, scores, previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Replaces what is known about a user, whose scores may also have gone down after a rejudge;
+    // a user left without accepted problems drops off the board
+    void replaceUser(Long userId, String username, Map<Long, ProblemBest> problems) {
+        lock.writeLock().lock();
+        try {
+            UserScores scores = users.get(userId);
+            if (scores != null) {
+                ranking.remove(scores.standing);
+            }
+            if (problems.isEmpty()) {
+                users.remove(userId);
+                lastUpdated = LocalDateTime.now();
+                return;
+            }
+            UserScores replacement = new UserScores(username != null || scores == null ? username : scores.username);
+            replacement.problems.putAll(problems);
+            users.put(userId, replacement);
+            reposition(userId, replacement, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    boolean hasUser(Long userId) {
+        lock.readLock().lock();
+        try {
+            return users.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Standings at 0-based positions from..from+count-1
+    List<Standing> range(int from, int count) {
+        lock.readLock().lock();
+        try {
+            return ranking.range(from, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // The user's standing with up to radius standings either side, or null for a user not on the board
+    Window around(Long userId, int radius) {
+        lock.readLock().lock();
+        try {
+            UserScores scores = users.get(userId);
+            int index = scores != null ? ranking.indexOf(scores.standing) : -1;
+            if (index < 0) {
+                return null;
+            }
+            int from = Math.max(0, index - radius);
+            return new Window(index, from, ranking.size(), ranking.range(from, index - from + radius + 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ranking.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+    
+    private void reposition(Long userId, UserScores scores, Standing previous) {
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        int totalScore = 0;
+        LocalDateTime lastAcceptedAt = null;
+        for (ProblemBest best : scores.problems.values()) {
+            totalScore += best.score;
+            if (lastAcceptedAt == null || best.firstAcceptedAt.isAfter(lastAcceptedAt)) {
+                lastAcceptedAt = best.firstAcceptedAt;
+            }
+        }
+        scores.standing = new Standing(userId, scores.username, totalScore, scores.problems.size(), lastAcceptedAt);
+        ranking.add(scores.standing);
+        lastUpdated = LocalDateTime.now();
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    static class Standing {
+        private final Long userId;
+        private final String username;
+        private final int totalScore;
+        private final int problemsSolved;
+        private final LocalDateTime lastAcceptedAt;
+    }
+    
+    // Positions are 0-based; from is the position of the first of the standings
+    @Getter
+    @AllArgsConstructor
+    static class Window {
+        private final int index;
+        private final int from;
+        private final int size;
+        private final List<Standing> standings;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    static class ProblemBest {
+        private final int score;
+        private final LocalDateTime firstAcceptedAt;
+    }
+    
+    private static class UserScores {
+        private final String username;
+        private final Map<Long, ProblemBest> problems = new HashMap<>();
+        private Standing standing;
+        
+        UserScores(String username) {
+            this.username = username;
+        }
+    }
+}
@@ -4,93 +4,206 @@ import com.shodhai.contest.dto.response.LeaderboardResponse;
 import com.shodhai.contest.dto.response.LeaderboardResponse.LeaderboardEntry;
 import com.shodhai.contest.exception.ResourceNotFoundException;
 import com.shodhai.contest.model.Contest;
+import com.shodhai.contest.model.Submission;
+import com.shodhai.contest.model.User;
+import com.shodhai.contest.repository.ContestProblemResultRepository;
 import com.shodhai.contest.repository.ContestRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
+import com.shodhai.contest.repository.SubmissionRepository;
+import com.shodhai.contest.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.math.BigInteger;
-import java.sql.Timestamp;
+import jakarta.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Leaderboards are served from per-contest rankings held in memory (ContestStandings) instead of
+// querying on every request. Rankings are built from contest_problem_results on startup or first
+// use and then updated per verdict in O(log n): by the judge on the node that judged it, and on
+// every other node through a contest_verdicts notification.
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LeaderboardService {
     
+    private static final int LEADERBOARD_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_RADIUS = 50;
+    
     private final ContestRepository contestRepository;
-    private final EntityManager entityManager;
+    // Also makes sure its backfill has run before the boards are first loaded
+    private final ContestResultService contestResultService;
+    private final SubmissionRepository submissionRepository;
+    private final UserRepository userRepository;
+    private final Map<Long, ContestStandings> boards = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void start() {
+        try {
+            for (Contest contest : contestRepository.findByIsActiveTrueOrderByStartTimeDesc()) {
+                board(contest.getId());
+            }
+            log.info("Loaded leaderboards of {} active contests", boards.size());
+        } catch (Exception e) {
+            // Loaded on first request instead
+            log.warn("Failed to preload leaderboards: {}", e.getMessage());
+        }
+    }
     
     public LeaderboardResponse getLeaderboard(Long contestId) {
-        Contest contest = contestRepository.findById(contestId)
-                .orElseThrow(() -> new ResourceNotFoundException("Contest", "id", contestId));
-        
-        // Calculate leaderboard using native query for better performance
-        String sql = """
-            WITH user_scores AS (
-                SELECT 
-                    s.user_id,
-                    u.username,
-                    s.problem_id,
-                    MAX(s.score) as best_score,
-                    MIN(s.submitted_at) as first_accepted_time
-                FROM submissions s
-                JOIN users u ON s.user_id = u.id
-                WHERE s.contest_id = :contestId
-                  AND s.status = 'ACCEPTED'
-                GROUP BY s.user_id, u.username, s.problem_id
-            ),
-            total_scores AS (
-                SELECT 
-                    user_id,
-                    username,
-                    SUM(best_score) as total_score,
-                    COUNT(DISTINCT problem_id) as problems_solved,
-                    MAX(first_accepted_time) as last_submission_time
-                FROM user_scores
-                GROUP BY user_id, username
-            )
-            SELECT 
-                user_id,
-                username,
-                total_score,
-                problems_solved,
-                last_submission_time
-            FROM total_scores
-            ORDER BY total_score DESC, last_submission_time ASC
-            LIMIT 100
-            """;
-        
-        Query query = entityManager.createNativeQuery(sql);
-        query.setParameter("contestId", contestId);
-        
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
-        
+        return getLeaderboard(contestId, 1, LEADERBOARD_SIZE);
+    }
+    
+    // Ranks fromRank..fromRank+count-1, read by position from the ranking in O(log n + count)
+    public LeaderboardResponse getLeaderboard(Long contestId, int fromRank, int count) {
+        if (fromRank < 1) {
+            throw new IllegalArgumentException("fromRank must be at least 1");
+        }
+        if (count < 1 || count > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("count must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        ContestStandings board = board(contestId);
+        return toResponse(contestId, board, fromRank, board.range(fromRank - 1, count), board.size());
+    }
+    
+    // The user's rank with up to radius ranks above and below it
+    public LeaderboardResponse getLeaderboardAround(Long contestId, Long userId, int radius) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("radius must be between 0 and " + MAX_RADIUS);
+        }
+        ContestStandings board = board(contestId);
+        ContestStandings.Window window = board.around(userId, radius);
+        if (window == null) {
+            throw new ResourceNotFoundException("Leaderboard entry", "userId", userId);
+        }
+        return toResponse(contestId, board, window.getFrom() + 1, window.getStandings(), window.getSize());
+    }
+    
+    // Called by the judge once a verdict is saved. A live accepted result is merged directly; a
+    // rejudged verdict may lower a score, so the user's standing is read back from the database.
+    public void onVerdict(Submission submission, boolean rejudge) {
+        Long contestId = submission.getContest().getId();
+        Long userId = submission.getUser().getId();
+        if (rejudge) {
+            reloadUser(contestId, userId);
+            submissionRepository.notifyVerdict("R," + contestId + "," + userId);
+        } else if (submission.getStatus() == Submission.Status.ACCEPTED) {
+            Long problemId = submission.getProblem().getId();
+            recordAccepted(contestId, userId, problemId, submission.getScore(), submission.getSubmittedAt());
+            submissionRepository.notifyVerdict("A," + contestId + "," + userId + "," + problemId + ","
+                    + submission.getScore() + "," + submission.getSubmittedAt());
+        }
+    }
+    
+    // After results were repaired in bulk, e.g. at the end of a rejudge run. Every node drops the
+    // contest's board once the repair has committed and rebuilds it on next use.
+    public void reloadContest(Long contestId) {
+        submissionRepository.notifyVerdict("C," + contestId);
+    }
+    
+    // Payloads from onVerdict and reloadContest on any node, this one included; applying one twice changes nothing
+    public void applyNotification(String payload) {
+        try {
+            String[] fields = payload.split(",");
+            Long contestId = Long.parseLong(fields[1]);
+            if ("C".equals(fields[0])) {
+                boards.remove(contestId);
+                return;
+            }
+            Long userId = Long.parseLong(fields[2]);
+            if ("A".equals(fields[0])) {
+                recordAccepted(contestId, userId, Long.parseLong(fields[3]), Integer.parseInt(fields[4]),
+                        LocalDateTime.parse(fields[5]));
+            } else {
+                reloadUser(contestId, userId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignoring leaderboard notification '{}': {}", payload, e.getMessage());
+        }
+    }
+    
+    // Notifications may have been missed, so every board is rebuilt on next use
+    public void invalidateAll() {
+        boards.clear();
+        log.info("Leaderboards invalidated");
+    }
+    
+    private void recordAccepted(Long contestId, Long userId, Long problemId, int score, LocalDateTime submittedAt) {
+        // Boards not loaded yet read the verdict from the database when they are
+        ContestStandings board = boards.get(contestId);
+        if (board == null) {
+            return;
+        }
+        String username = board.hasUser(userId)
+                ? null
+                : userRepository.findById(userId).map(User::getUsername).orElse(null);
+        if (!board.applyAccepted(userId, username, problemId, score, submittedAt)) {
+            // No username was found, or the user dropped off the board meanwhile; the verdict is
+            // committed by now, so the user's row can be read back with its name
+            reloadUser(contestId, userId);
+        }
+    }
+    
+    private void reloadUser(Long contestId, Long userId) {
+        ContestStandings board = boards.get(contestId);
+        if (board == null) {
+            return;
+        }
+        String username = null;
+        Map<Long, ContestStandings.ProblemBest> problems = new HashMap<>();
+        List<ContestProblemResultRepository.BestAccepted> rows = contestResultService.getBestAccepted(contestId, userId);
+        for (ContestProblemResultRepository.BestAccepted row : rows) {
+            username = row.getUsername();
+            problems.put(row.getProblemId(), new ContestStandings.ProblemBest(
+                    row.getBestScore(), row.getFirstAcceptedAt().toLocalDateTime()));
+        }
+        board.replaceUser(userId, username, problems);
+    }
+    
+    private LeaderboardResponse toResponse(Long contestId, ContestStandings board, int firstRank,
+            List<ContestStandings.Standing> standings, int totalEntries) {
         List<LeaderboardEntry> entries = new ArrayList<>();
-        int rank = 1;
-        
-        for (Object[] row : results) {
-            LeaderboardEntry entry = LeaderboardEntry.builder()
+        int rank = firstRank;
+        for (ContestStandings.Standing standing : standings) {
+            entries.add(LeaderboardEntry.builder()
                     .rank(rank++)
-                    .userId(((BigInteger) row[0]).longValue())
-                    .username((String) row[1])
-                    .totalScore(((Number) row[2]).intValue())
-                    .problemsSolved(((BigInteger) row[3]).intValue())
-                    .lastSubmissionTime(((Timestamp) row[4]).toLocalDateTime())
-                    .build();
-            entries.add(entry);
+                    .userId(standing.getUserId())
+                    .username(standing.getUsername())
+                    .totalScore(standing.getTotalScore())
+                    .problemsSolved(standing.getProblemsSolved())
+                    .lastSubmissionTime(standing.getLastAcceptedAt())
+                    .build());
         }
         
         return LeaderboardResponse.builder()
                 .contestId(contestId)
-                .lastUpdated(LocalDateTime.now())
+                .lastUpdated(board.getLastUpdated())
+                .totalEntries(totalEntries)
                 .entries(entries)
                 .build();
     }
+    
+    private ContestStandings board(Long contestId) {
+        ContestStandings board = boards.get(contestId);
+        if (board == null) {
+            if (!contestRepository.existsById(contestId)) {
+                throw new ResourceNotFoundException("Contest", "id", contestId);
+            }
+            board = boards.computeIfAbsent(contestId, id -> new ContestStandings());
+        }
+        board.ensureLoaded(loading -> {
+            List<ContestProblemResultRepository.BestAccepted> rows = contestResultService.getBestAccepted(contestId);
+            for (ContestProblemResultRepository.BestAccepted row : rows) {
+                loading.applyAccepted(row.getUserId(), row.getUsername(), row.getProblemId(),
+                        row.getBestScore(), row.getFirstAcceptedAt().toLocalDateTime());
+            }
+            log.info("Built leaderboard of contest {} from {} accepted results", contestId, rows.size());
+        });
+        return board;
+    }
 }
-
@@ -0,0 +1,205 @@
+package com.shodhai.contest.service;
+
+import com.shodhai.contest.config.StreamConfig;
+import com.shodhai.contest.dto.response.LeaderboardDelta;
+import com.shodhai.contest.dto.response.LeaderboardResponse;
+import com.shodhai.contest.dto.response.LeaderboardResponse.LeaderboardEntry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pushes leaderboards to subscribers over server-sent events: a snapshot on subscribe, then one
+// delta per interval in which the top entries changed. Each frame is serialized once per contest
+// and the same bytes are written to every subscriber. A subscriber still busy with its previous
+// frame skips the delta and is sent a fresh snapshot once it has caught up, so a slow client
+// never queues more than one frame.
+@Service
+@Slf4j
+public class LeaderboardStreamService {
+    
+    private final LeaderboardService leaderboardService;
+    private final StreamConfig streamConfig;
+    private final SseSender sseSender;
+    private final Map<Long, ContestStream> streams = new ConcurrentHashMap<>();
+    private volatile long lastHeartbeatMillis = System.currentTimeMillis();
+    
+    public LeaderboardStreamService(
+            LeaderboardService leaderboardService,
+            StreamConfig streamConfig,
+            SseSender sseSender,
+            MeterRegistry meterRegistry) {
+        this.leaderboardService = leaderboardService;
+        this.streamConfig = streamConfig;
+        this.sseSender = sseSender;
+        Gauge.builder("leaderboard.stream.subscribers", this, LeaderboardStreamService::getSubscriberCount)
+                .description("Open leaderboard streams on this node")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (ContestStream stream : streams.values()) {
+            for (Subscriber subscriber : stream.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+    
+    public SseEmitter subscribe(Long contestId) {
+        // Also checks that the contest exists before a connection is kept open
+        LeaderboardResponse current = leaderboardService.getLeaderboard(contestId);
+        SseEmitter emitter = sseSender.newEmitter();
+        Subscriber subscriber = new Subscriber(emitter);
+        
+        while (true) {
+            ContestStream stream = streams.computeIfAbsent(contestId, ContestStream::new);
+            stream.lock.lock();
+            try {
+                if (stream.closed) {
+                    continue;
+                }
+                if (stream.last == null) {
+                    stream.last = current;
+                }
+                stream.subscribers.add(subscriber);
+                emitter.onCompletion(() -> stream.subscribers.remove(subscriber));
+                emitter.onTimeout(emitter::complete);
+                emitter.onError(e -> emitter.complete());
+                dispatch(subscriber, stream.snapshotFrame(), true);
+            } finally {
+                stream.lock.unlock();
+            }
+            return emitter;
+        }
+    }
+    
+    public int getSubscriberCount() {
+        return streams.values().stream().mapToInt(stream -> stream.subscribers.size()).sum();
+    }
+    
+    @Scheduled(fixedDelayString = "${streams.leaderboard-interval-ms:500}")
+    public void publish() {
+        boolean heartbeat = System.currentTimeMillis() - lastHeartbeatMillis >= streamConfig.getHeartbeatIntervalMs();
+        if (heartbeat) {
+            lastHeartbeatMillis = System.currentTimeMillis();
+        }
+        for (ContestStream stream : streams.values()) {
+            try {
+                publish(stream, heartbeat);
+            } catch (Exception e) {
+                log.warn("Failed to publish leaderboard of contest {}: {}", stream.contestId, e.getMessage());
+            }
+        }
+    }
+    
+    private void publish(ContestStream stream, boolean heartbeat) {
+        stream.lock.lock();
+        try {
+            if (stream.subscribers.isEmpty()) {
+                // Subscribers arriving now retry with a new stream
+                stream.closed = true;
+                streams.remove(stream.contestId, stream);
+                return;
+            }
+            LeaderboardResponse current = leaderboardService.getLeaderboard(stream.contestId);
+            Set<DataWithMediaType> delta = stream.deltaFrame(current);
+            for (Subscriber subscriber : stream.subscribers) {
+                if (subscriber.stale) {
+                    dispatch(subscriber, stream.snapshotFrame(), true);
+                } else if (delta != null) {
+                    dispatch(subscriber, delta, true);
+                } else if (heartbeat) {
+                    dispatch(subscriber, SseSender.HEARTBEAT, false);
+                }
+            }
+        } finally {
+            stream.lock.unlock();
+        }
+    }
+    
+    // A frame that must not be lost marks a busy subscriber stale instead
+    private void dispatch(Subscriber subscriber, Set<DataWithMediaType> frame, boolean required) {
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            if (required) {
+                subscriber.stale = true;
+            }
+            return;
+        }
+        subscriber.stale = false;
+        sseSender.send(subscriber.emitter, frame, () -> subscriber.sending.set(false));
+    }
+    
+    private class ContestStream {
+        
+        private final Long contestId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private boolean closed = false;
+        // The leaderboard as subscribers last saw it, what deltas are computed against
+        private LeaderboardResponse last;
+        private Set<DataWithMediaType> snapshot;
+        
+        ContestStream(Long contestId) {
+            this.contestId = contestId;
+        }
+        
+        Set<DataWithMediaType> snapshotFrame() {
+            if (snapshot == null) {
+                snapshot = sseSender.frame("snapshot", last);
+            }
+            return snapshot;
+        }
+        
+        // Null when nothing subscribers can see has changed
+        Set<DataWithMediaType> deltaFrame(LeaderboardResponse current) {
+            Map<Long, LeaderboardEntry> previous = new HashMap<>();
+            for (LeaderboardEntry entry : last.getEntries()) {
+                previous.put(entry.getUserId(), entry);
+            }
+            List<LeaderboardEntry> changed = new ArrayList<>();
+            for (LeaderboardEntry entry : current.getEntries()) {
+                if (!entry.equals(previous.remove(entry.getUserId()))) {
+                    changed.add(entry);
+                }
+            }
+            if (changed.isEmpty() && previous.isEmpty()) {
+                return null;
+            }
+            last = current;
+            snapshot = null;
+            return sseSender.frame("delta", LeaderboardDelta.builder()
+                    .contestId(contestId)
+                    .lastUpdated(current.getLastUpdated())
+                    .entries(changed)
+                    .removed(new ArrayList<>(previous.keySet()))
+                    .build());
+        }
+    }
+    
+    private static class Subscriber {
+        
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        // Missed a delta and needs a snapshot to catch up
+        private volatile boolean stale = false;
+        
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
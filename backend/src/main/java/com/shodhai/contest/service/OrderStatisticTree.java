@@ -0,0 +1,145 @@
+package com.shodhai.contest.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Treap keeping subtree sizes, so insert, remove and rank lookups are O(log n) expected.
+// Keys must be distinct under the comparator. Not thread-safe; callers hold their own lock.
+class OrderStatisticTree<K> {
+    
+    private final Comparator<? super K> comparator;
+    private Node<K> root;
+    
+    OrderStatisticTree(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+    
+    void add(K key) {
+        Node<K>[] parts = split(root, key);
+        root = merge(merge(parts[0], new Node<>(key)), parts[1]);
+    }
+    
+    boolean remove(K key) {
+        int before = size(root);
+        root = remove(root, key);
+        return size(root) < before;
+    }
+    
+    int size() {
+        return size(root);
+    }
+    
+    // Keys at positions from..from+count-1 in order, in O(log n + count)
+    List<K> range(int from, int count) {
+        List<K> keys = new ArrayList<>();
+        collect(root, 0, Math.max(0, from), Math.min(size(), from + count), keys);
+        return keys;
+    }
+    
+    // Position of key, or -1 if it is not in the tree
+    int indexOf(K key) {
+        Node<K> node = root;
+        int before = 0;
+        while (node != null) {
+            int comparison = comparator.compare(key, node.key);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison == 0) {
+                return before + size(node.left);
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+    
+    // Adds the keys of the subtree at positions from..end-1; offset is the position of its first key.
+    // Subtrees outside the range are skipped by their size.
+    private void collect(Node<K> node, int offset, int from, int end, List<K> keys) {
+        if (node == null || offset >= end || offset + node.size <= from) {
+            return;
+        }
+        collect(node.left, offset, from, end, keys);
+        int index = offset + size(node.left);
+        if (index >= from && index < end) {
+            keys.add(node.key);
+        }
+        collect(node.right, index + 1, from, end, keys);
+    }
+    
+    private Node<K> remove(Node<K> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = comparator.compare(key, node.key);
+        if (comparison == 0) {
+            return merge(node.left, node.right);
+        }
+        if (comparison < 0) {
+            node.left = remove(node.left, key);
+        } else {
+            node.right = remove(node.right, key);
+        }
+        node.update();
+        return node;
+    }
+    
+    // Splits into keys below key and keys at or above it
+    @SuppressWarnings("unchecked")
+    private Node<K>[] split(Node<K> node, K key) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        if (comparator.compare(node.key, key) < 0) {
+            Node<K>[] parts = split(node.right, key);
+            node.right = parts[0];
+            node.update();
+            return new Node[] {node, parts[1]};
+        }
+        Node<K>[] parts = split(node.left, key);
+        node.left = parts[1];
+        node.update();
+        return new Node[] {parts[0], node};
+    }
+    
+    // Every key of left must be below every key of right
+    private Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+    
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+    
+    private static class Node<K> {
+        private final K key;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node<K> left;
+        private Node<K> right;
+        private int size = 1;
+        
+        Node(K key) {
+            this.key = key;
+        }
+        
+        void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
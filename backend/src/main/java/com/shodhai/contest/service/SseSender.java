@@ -0,0 +1,77 @@
+package com.shodhai.contest.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shodhai.contest.config.StreamConfig;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Writes server-sent event frames for the stream services. Frames are built once and the same
+// instance is sent to every subscriber it is meant for.
+@Component
+public class SseSender {
+    
+    public static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+    
+    private final StreamConfig streamConfig;
+    private final ObjectMapper objectMapper;
+    // SseEmitter.send is synchronized and would pin a virtual thread while the socket blocks
+    private final ExecutorService sender;
+    
+    public SseSender(StreamConfig streamConfig, ObjectMapper objectMapper) {
+        this.streamConfig = streamConfig;
+        this.objectMapper = objectMapper;
+        this.sender = Executors.newFixedThreadPool(streamConfig.getSendThreads());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+    
+    public SseEmitter newEmitter() {
+        return new SseEmitter(streamConfig.getTimeoutMinutes() * 60_000L);
+    }
+    
+    public Set<DataWithMediaType> frame(String name, Object data) {
+        try {
+            return frame(name, objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + name + " event", e);
+        }
+    }
+    
+    // For data that is JSON already
+    public Set<DataWithMediaType> frame(String name, String json) {
+        return SseEmitter.event()
+                .name(name)
+                .data(json, MediaType.APPLICATION_JSON)
+                .build();
+    }
+    
+    // Runs done once the frame is written or the write failed; a failed write completes the emitter
+    public void send(SseEmitter emitter, Set<DataWithMediaType> frame, Runnable done) {
+        try {
+            sender.execute(() -> {
+                try {
+                    emitter.send(frame);
+                } catch (Exception e) {
+                    // Disconnected; the emitter's completion callback removes the subscriber
+                    emitter.complete();
+                } finally {
+                    done.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            emitter.complete();
+            done.run();
+        }
+    }
+}
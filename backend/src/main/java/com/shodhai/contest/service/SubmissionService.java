@@ -2,17 +2,23 @@ package com.shodhai.contest.service;
 
 import com.shodhai.contest.dto.request.SubmitCodeRequest;
 import com.shodhai.contest.dto.response.SubmissionResponse;
+import com.shodhai.contest.dto.response.SubmissionTimelineResponse;
+import com.shodhai.contest.dto.response.SubmissionTimelineResponse.TimelineEvent;
 import com.shodhai.contest.exception.ResourceNotFoundException;
 import com.shodhai.contest.judge.JudgeService;
+import com.shodhai.contest.judge.JudgeTimeline;
+import com.shodhai.contest.judge.SubmissionQueue;
 import com.shodhai.contest.model.Contest;
 import com.shodhai.contest.model.Problem;
 import com.shodhai.contest.model.Submission;
 import com.shodhai.contest.model.Submission.Language;
 import com.shodhai.contest.model.Submission.Status;
+import com.shodhai.contest.model.SubmissionTimeline;
 import com.shodhai.contest.model.User;
 import com.shodhai.contest.repository.ContestRepository;
 import com.shodhai.contest.repository.ProblemRepository;
 import com.shodhai.contest.repository.SubmissionRepository;
+import com.shodhai.contest.repository.SubmissionTimelineRepository;
 import com.shodhai.contest.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +27,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,10 +37,12 @@ import java.util.ArrayList;
 public class SubmissionService {
     
     private final SubmissionRepository submissionRepository;
+    private final SubmissionTimelineRepository submissionTimelineRepository;
     private final UserRepository userRepository;
     private final ProblemRepository problemRepository;
     private final ContestRepository contestRepository;
     private final JudgeService judgeService;
+    private final SubmissionQueue submissionQueue;
     
     @Transactional
     public SubmissionResponse submitCode(SubmitCodeRequest request) {
@@ -76,14 +87,85 @@ public class SubmissionService {
         return buildSubmissionResponse(savedSubmission);
     }
     
+    // Polled by clients without a status stream, so the code column is not read
     public SubmissionResponse getSubmissionStatus(Long submissionId) {
-        Submission submission = submissionRepository.findById(submissionId)
+        SubmissionRepository.StatusView submission = submissionRepository.findStatusById(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Submission", "id", submissionId));
+        Optional<SubmissionQueue.QueuePosition> queuePosition = queuePosition(submission.getId(),
+                submission.getStatus());
         
-        return buildSubmissionResponse(submission);
+        return SubmissionResponse.builder()
+                .id(submission.getId())
+                .userId(submission.getUserId())
+                .problemId(submission.getProblemId())
+                .contestId(submission.getContestId())
+                .language(submission.getLanguage().name())
+                .status(submission.getStatus().name())
+                .result(submission.getResult())
+                .score(submission.getScore())
+                .executionTimeMs(submission.getExecutionTimeMs())
+                .memoryUsedMb(submission.getMemoryUsedMb())
+                .errorMessage(submission.getErrorMessage())
+                .testCasesPassed(submission.getTestCasesPassed())
+                .totalTestCases(submission.getTotalTestCases())
+                .submittedAt(submission.getSubmittedAt())
+                .completedAt(submission.getCompletedAt())
+                .queuePosition(queuePosition.map(SubmissionQueue.QueuePosition::getPosition).orElse(null))
+                .estimatedWaitSeconds(queuePosition.map(SubmissionQueue.QueuePosition::getEstimatedWaitSeconds)
+                        .orElse(null))
+                .testCaseResults(new ArrayList<>())
+                .build();
+    }
+    
+    // Where the time of the latest judging attempt went: queue, compiler, sandbox or database
+    public SubmissionTimelineResponse getSubmissionTimeline(Long submissionId) {
+        SubmissionTimeline timeline = submissionTimelineRepository.findById(submissionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Submission timeline", "submissionId", submissionId));
+        
+        List<JudgeTimeline.Event> events = JudgeTimeline.decode(timeline.getEvents());
+        long totalMs = events.stream()
+                .mapToLong(event -> event.getOffsetMs() + (event.getDurationMs() != null ? event.getDurationMs() : 0))
+                .max()
+                .orElse(0);
+        
+        return SubmissionTimelineResponse.builder()
+                .submissionId(submissionId)
+                .attempt(timeline.getAttempt())
+                .enqueuedAt(timeline.getEnqueuedAt())
+                .totalMs(totalMs)
+                .queueMs(events.stream()
+                        .filter(event -> "dequeued".equals(event.getStage()))
+                        .mapToLong(JudgeTimeline.Event::getOffsetMs)
+                        .findFirst()
+                        .orElse(0))
+                .compileMs(sumDurations(events, "compile"))
+                .slotWaitMs(sumDurations(events, "slot_wait"))
+                .sandboxMs(sumDurations(events, "test") + sumDurations(events, "batch"))
+                .validateMs(sumDurations(events, "validate"))
+                .saveMs(sumDurations(events, "persisted"))
+                .events(events.stream()
+                        .map(event -> TimelineEvent.builder()
+                                .stage(event.getStage())
+                                .test(event.getTest())
+                                .offsetMs(event.getOffsetMs())
+                                .durationMs(event.getDurationMs())
+                                .cpuMs(event.getCpuMs())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+    
+    private long sumDurations(List<JudgeTimeline.Event> events, String stage) {
+        return events.stream()
+                .filter(event -> stage.equals(event.getStage()) && event.getDurationMs() != null)
+                .mapToLong(JudgeTimeline.Event::getDurationMs)
+                .sum();
     }
     
     private SubmissionResponse buildSubmissionResponse(Submission submission) {
+        Optional<SubmissionQueue.QueuePosition> queuePosition = queuePosition(submission.getId(),
+                submission.getStatus());
+        
         return SubmissionResponse.builder()
                 .id(submission.getId())
                 .userId(submission.getUser().getId())
@@ -100,8 +182,17 @@ public class SubmissionService {
                 .totalTestCases(submission.getTotalTestCases())
                 .submittedAt(submission.getSubmittedAt())
                 .completedAt(submission.getCompletedAt())
+                .queuePosition(queuePosition.map(SubmissionQueue.QueuePosition::getPosition).orElse(null))
+                .estimatedWaitSeconds(queuePosition.map(SubmissionQueue.QueuePosition::getEstimatedWaitSeconds)
+                        .orElse(null))
                 .testCaseResults(new ArrayList<>()) // Could be expanded with detailed results
                 .build();
     }
+    
+    // Lets clients show their place in line and poll less often while it is long
+    private Optional<SubmissionQueue.QueuePosition> queuePosition(Long submissionId, Status status) {
+        return status == Status.PENDING
+                ? submissionQueue.getQueuePosition(submissionId)
+                : Optional.empty();
+    }
 }
-
@@ -0,0 +1,139 @@
+package com.shodhai.contest.service;
+
+import com.shodhai.contest.config.StreamConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-user streams of submission status transitions, fed by submission_status notifications from
+// whichever node judges the submission. Unlike leaderboard deltas every frame matters, so each
+// subscriber has a short queue written in order; one that falls too far behind is disconnected
+// and reads the current status when its client reconnects.
+@Service
+@Slf4j
+public class SubmissionStatusStreamService {
+    
+    private final StreamConfig streamConfig;
+    private final SseSender sseSender;
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    
+    public SubmissionStatusStreamService(StreamConfig streamConfig, SseSender sseSender, MeterRegistry meterRegistry) {
+        this.streamConfig = streamConfig;
+        this.sseSender = sseSender;
+        Gauge.builder("submission.stream.subscribers", this, SubmissionStatusStreamService::getSubscriberCount)
+                .description("Open submission status streams on this node")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+    
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = sseSender.newEmitter();
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+        emitter.onCompletion(() -> subscribers.computeIfPresent(userId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        }));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+        // Lets the client know the stream is live, so it can read the status it may have missed
+        enqueue(subscriber, sseSender.frame("ready", "{}"));
+        return emitter;
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+    
+    // "userId,json" from SubmissionStatusNotifier; the JSON is forwarded as it is
+    public void applyNotification(String payload) {
+        int comma = payload.indexOf(',');
+        List<Subscriber> list;
+        try {
+            list = subscribers.get(Long.parseLong(payload.substring(0, comma)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring submission status notification '{}': {}", payload, e.getMessage());
+            return;
+        }
+        if (list == null) {
+            return;
+        }
+        Set<DataWithMediaType> frame = sseSender.frame("status", payload.substring(comma + 1));
+        for (Subscriber subscriber : list) {
+            enqueue(subscriber, frame);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${streams.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                // A subscriber with frames queued is being written to anyway
+                if (subscriber.pending.get() == 0) {
+                    enqueue(subscriber, SseSender.HEARTBEAT);
+                }
+            }
+        }
+    }
+    
+    private void enqueue(Subscriber subscriber, Set<DataWithMediaType> frame) {
+        if (subscriber.pending.incrementAndGet() > streamConfig.getMaxPendingFrames()) {
+            subscriber.emitter.complete();
+            return;
+        }
+        subscriber.frames.add(frame);
+        drain(subscriber);
+    }
+    
+    // One frame in flight per subscriber keeps them in order
+    private void drain(Subscriber subscriber) {
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        Set<DataWithMediaType> frame = subscriber.frames.poll();
+        if (frame == null) {
+            subscriber.sending.set(false);
+            // A frame added between the poll and the reset would otherwise wait for the next one
+            if (!subscriber.frames.isEmpty()) {
+                drain(subscriber);
+            }
+            return;
+        }
+        sseSender.send(subscriber.emitter, frame, () -> {
+            subscriber.pending.decrementAndGet();
+            subscriber.sending.set(false);
+            drain(subscriber);
+        });
+    }
+    
+    private static class Subscriber {
+        
+        private final SseEmitter emitter;
+        private final Queue<Set<DataWithMediaType>> frames = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
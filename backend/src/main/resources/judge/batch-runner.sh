@@ -0,0 +1,51 @@
+#!/bin/bash
+# Batch harness: runs the program once per /tests/<n>.in inside a single container.
+# Usage: batch-runner.sh <test-count> <time-limit-seconds> <stop-on-failure> <output-limit-kb> <command...>
+# Writes /out/<n>.out and /out/<n>.err, and one line per test to /out/results.txt:
+#   <n> <exit-code> <user-seconds> <sys-seconds> <wall-seconds> <cpu-usec> <peak-memory-bytes> <oom-kills>
+# The last three come from the container's cgroup v2 files and are -1 where those are missing.
+# The container only runs this harness, so cgroup deltas belong to the current test. The
+# memory peak is a high-water mark for the whole batch, so it is only reported for a test that
+# raised it and is -1 for the others.
+
+count="$1"
+limit="$2"
+stop_on_failure="$3"
+output_limit_kb="$4"
+shift 4
+
+# Writes past the output limit raise SIGXFSZ (exit code 153)
+ulimit -f "$output_limit_kb"
+
+TIMEFORMAT='%3U %3S %3R'
+
+cgroup=/sys/fs/cgroup
+
+stat_value() {
+    if [ -r "$cgroup/$1" ]; then
+        awk -v key="$2" '$1 == key { print $2; found = 1 } END { if (!found) print 0 }' "$cgroup/$1"
+    else
+        echo -1
+    fi
+}
+
+for ((n = 1; n <= count; n++)); do
+    cpu_before=$(stat_value cpu.stat usage_usec)
+    oom_before=$(stat_value memory.events oom_kill)
+    peak_before=$(cat "$cgroup/memory.peak" 2>/dev/null || echo -1)
+    { time timeout -k 1 "$limit" "$@" < "/tests/$n.in" > "/out/$n.out" 2> "/out/$n.err"; } 2> "/out/$n.time"
+    code=$?
+    # The timing line is last; bash may print a signal notice before it
+    read -r user sys wall < <(tail -n 1 "/out/$n.time")
+    cpu=-1
+    oom=-1
+    peak=-1
+    [ "$cpu_before" -ge 0 ] && cpu=$(($(stat_value cpu.stat usage_usec) - cpu_before))
+    [ "$oom_before" -ge 0 ] && oom=$(($(stat_value memory.events oom_kill) - oom_before))
+    peak_after=$(cat "$cgroup/memory.peak" 2>/dev/null || echo -1)
+    [ "$peak_before" -ge 0 ] && [ "$peak_after" -gt "$peak_before" ] && peak=$peak_after
+    echo "$n $code $user $sys $wall $cpu $peak $oom" >> /out/results.txt
+    if [ "$code" -ne 0 ] && [ "$stop_on_failure" = "1" ]; then
+        break
+    fi
+done
@@ -0,0 +1,54 @@
+#!/bin/bash
+# Measured run: executes the program once under a wall-clock limit and reports the
+# container's cgroup v2 accounting for it as the last line on stderr:
+#   __judge_stats__ <exit-code> <cpu-usec> <peak-memory-bytes> <oom-kills> <wall-usec>
+# Values are -1 when the cgroup file is not available (e.g. cgroup v1 hosts), and wall
+# time is -1 on shells without EPOCHREALTIME (bash < 5).
+# memory.peak is a high-water mark over the container's lifetime, so it only belongs to this
+# run when the run raised it; otherwise (e.g. a pooled sandbox that ran a bigger test earlier)
+# the peak is reported as -1.
+# Usage: run-measured.sh <wall-limit-seconds> <output-limit-kb> <input-file> <command...>
+# Program stderr is capped at 63 KB so the stats line always fits in what the judge keeps.
+
+limit="$1"
+output_limit_kb="$2"
+input="$3"
+shift 3
+
+cgroup=/sys/fs/cgroup
+
+stat_value() {
+    if [ -r "$cgroup/$1" ]; then
+        awk -v key="$2" '$1 == key { print $2; found = 1 } END { if (!found) print 0 }' "$cgroup/$1"
+    else
+        echo -1
+    fi
+}
+
+cpu_before=$(stat_value cpu.stat usage_usec)
+oom_before=$(stat_value memory.events oom_kill)
+peak_before=$(cat "$cgroup/memory.peak" 2>/dev/null || echo -1)
+
+# Writes past the output limit raise SIGXFSZ (exit code 153)
+start=${EPOCHREALTIME/[.,]/}
+(ulimit -f "$output_limit_kb"; exec timeout -k 1 "$limit" "$@") < "$input" 2> /tmp/judge-stderr
+code=$?
+end=${EPOCHREALTIME/[.,]/}
+
+cpu_after=$(stat_value cpu.stat usage_usec)
+oom_after=$(stat_value memory.events oom_kill)
+peak_after=$(cat "$cgroup/memory.peak" 2>/dev/null || echo -1)
+
+head -c 64512 /tmp/judge-stderr >&2
+rm -f /tmp/judge-stderr
+echo >&2
+cpu=-1
+oom=-1
+wall=-1
+peak=-1
+[ "$cpu_before" -ge 0 ] && cpu=$((cpu_after - cpu_before))
+[ "$oom_before" -ge 0 ] && oom=$((oom_after - oom_before))
+[ "$peak_before" -ge 0 ] && [ "$peak_after" -gt "$peak_before" ] && peak=$peak_after
+[ -n "$start" ] && wall=$((10#$end - 10#$start))
+echo "__judge_stats__ $code $cpu $peak $oom $wall" >&2
+exit "$code"
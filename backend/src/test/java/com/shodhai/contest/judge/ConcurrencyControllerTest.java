@@ -0,0 +1,72 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class ConcurrencyControllerTest {
+    
+    private ConcurrencyController controller;
+    
+    @BeforeEach
+    void setUp() {
+        JudgeConfig judgeConfig = new JudgeConfig();
+        judgeConfig.getConcurrency().setCpus("0-7");
+        judgeConfig.getConcurrency().setMemoryBudgetMb(64 * 1024);
+        controller = new ConcurrencyController(judgeConfig, mock(JudgeJobRepository.class));
+        controller.start();
+    }
+    
+    @Test
+    void sleepingRunDoesNotScaleDown() {
+        for (int i = 0; i < 5; i++) {
+            controller.recordRun(200_000, 210_000);
+        }
+        // 100 ms of CPU, then asleep for 5 s
+        controller.recordRun(100_000, 5_100_000);
+        controller.adjust();
+        assertEquals(8, controller.getLimit());
+    }
+    
+    @Test
+    void fewContendedRunsDoNotScaleDown() {
+        for (int i = 0; i < 4; i++) {
+            controller.recordRun(200_000, 210_000);
+        }
+        controller.recordRun(200_000, 700_000);
+        controller.recordRun(200_000, 700_000);
+        controller.adjust();
+        assertEquals(8, controller.getLimit());
+    }
+    
+    @Test
+    void contendedRunsScaleDown() {
+        for (int i = 0; i < 5; i++) {
+            controller.recordRun(200_000, 400_000);
+        }
+        controller.adjust();
+        assertEquals(6, controller.getLimit());
+    }
+    
+    @Test
+    void tooFewSamplesAreIgnored() {
+        for (int i = 0; i < 4; i++) {
+            controller.recordRun(200_000, 400_000);
+        }
+        controller.adjust();
+        assertEquals(8, controller.getLimit());
+    }
+    
+    @Test
+    void shortRunsAreIgnored() {
+        for (int i = 0; i < 10; i++) {
+            controller.recordRun(10_000, 40_000);
+        }
+        controller.adjust();
+        assertEquals(8, controller.getLimit());
+    }
+}
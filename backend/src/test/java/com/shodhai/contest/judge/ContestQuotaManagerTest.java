@@ -0,0 +1,102 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.model.Contest;
+import com.shodhai.contest.repository.ContestRepository;
+import com.shodhai.contest.repository.JudgeJobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContestQuotaManagerTest {
+    
+    // contest -> {weight, minShare} for contests with their own settings; others use the defaults
+    private static final Map<Long, double[]> QUOTAS = Map.of(
+            1L, new double[] {1, 0.0},
+            2L, new double[] {1, 0.0},
+            3L, new double[] {3, 0.0},
+            4L, new double[] {1, 0.5},
+            5L, new double[] {9, 0.0},
+            6L, new double[] {1, 0.75},
+            7L, new double[] {1, 0.75});
+    
+    // queued, running, total slots, free slots, expected claims
+    static Stream<Arguments> plans() {
+        return Stream.of(
+                arguments("nothing queued", Map.of(), Map.of(), 8, 8, Map.of()),
+                arguments("one contest takes what it needs", Map.of(1L, 4L), Map.of(), 8, 8, Map.of(1L, 4)),
+                arguments("one contest takes every slot", Map.of(1L, 20L), Map.of(), 8, 8, Map.of(1L, 8)),
+                arguments("equal weights split evenly", Map.of(1L, 20L, 2L, 20L), Map.of(), 8, 8,
+                        Map.of(1L, 4, 2L, 4)),
+                arguments("split by weight", Map.of(3L, 20L, 1L, 20L), Map.of(), 8, 8, Map.of(3L, 6, 1L, 2)),
+                arguments("idle capacity is lent", Map.of(1L, 1L, 2L, 20L), Map.of(), 8, 8, Map.of(1L, 1, 2L, 7)),
+                arguments("minimum share before weights", Map.of(4L, 20L, 5L, 20L), Map.of(), 8, 8,
+                        Map.of(4L, 4, 5L, 4)),
+                arguments("minimum share capped by demand", Map.of(4L, 1L, 5L, 20L), Map.of(), 8, 8,
+                        Map.of(4L, 1, 5L, 7)),
+                arguments("running jobs count toward the target", Map.of(1L, 20L, 2L, 20L), Map.of(1L, 3), 8, 5,
+                        Map.of(1L, 1, 2L, 4)),
+                arguments("running jobs are not preempted", Map.of(2L, 5L), Map.of(1L, 8), 8, 0, Map.of()),
+                arguments("a contest over target claims nothing", Map.of(2L, 5L), Map.of(1L, 8), 10, 2,
+                        Map.of(2L, 2)),
+                arguments("furthest below target claims first", Map.of(1L, 10L, 2L, 10L), Map.of(1L, 1, 2L, 3),
+                        8, 3, Map.of(1L, 3)),
+                arguments("unknown contest uses the defaults", Map.of(99L, 20L, 1L, 20L), Map.of(), 8, 8,
+                        Map.of(99L, 4, 1L, 4)));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("plans")
+    void plan(String name, Map<Long, Long> queued, Map<Long, Integer> running, int totalSlots, int freeSlots,
+            Map<Long, Integer> expected) {
+        assertEquals(expected, manager().plan(demand(queued), running, totalSlots, freeSlots));
+    }
+    
+    @Test
+    void minimumSharesNeverExceedTheSlots() {
+        Map<Long, Integer> allowance = manager().plan(demand(Map.of(6L, 20L, 7L, 20L)), Map.of(), 4, 4);
+        assertEquals(4, allowance.values().stream().mapToInt(Integer::intValue).sum());
+    }
+    
+    private static ContestQuotaManager manager() {
+        List<Contest> contests = new ArrayList<>();
+        QUOTAS.forEach((contestId, quota) -> {
+            Contest contest = new Contest();
+            contest.setId(contestId);
+            contest.setJudgeWeight((int) quota[0]);
+            contest.setJudgeMinShare(quota[1]);
+            contests.add(contest);
+        });
+        ContestRepository contestRepository = mock(ContestRepository.class);
+        when(contestRepository.findAllById(any())).thenReturn(contests);
+        return new ContestQuotaManager(new JudgeConfig(), contestRepository);
+    }
+    
+    private static List<JudgeJobRepository.ContestDemand> demand(Map<Long, Long> queued) {
+        return queued.entrySet().stream()
+                .map(entry -> (JudgeJobRepository.ContestDemand) new JudgeJobRepository.ContestDemand() {
+                    @Override
+                    public Long getContestId() {
+                        return entry.getKey();
+                    }
+                    
+                    @Override
+                    public Long getQueued() {
+                        return entry.getValue();
+                    }
+                })
+                .toList();
+    }
+}
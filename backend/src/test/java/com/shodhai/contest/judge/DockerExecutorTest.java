@@ -0,0 +1,116 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class DockerExecutorTest {
+    
+    private static final long MB = 1024 * 1024;
+    private static final DockerExecutor.RunStats UNAVAILABLE = DockerExecutor.RunStats.UNAVAILABLE;
+    
+    @TempDir
+    Path tempDir;
+    
+    private ConcurrencyController concurrencyController;
+    private DockerExecutor executor;
+    
+    @BeforeEach
+    void setUp() {
+        JudgeConfig judgeConfig = new JudgeConfig();
+        judgeConfig.setTempDir(tempDir.toString());
+        concurrencyController = mock(ConcurrencyController.class);
+        executor = new DockerExecutor(judgeConfig, mock(SandboxPool.class), mock(CompileCache.class),
+                mock(WorkspaceManager.class), concurrencyController, mock(JudgeMetrics.class));
+    }
+    
+    static Stream<Arguments> statsLines() {
+        return Stream.of(
+                arguments("0 1500 2048 0 2000", new DockerExecutor.RunStats(1500, 2048, 0, 2000)),
+                arguments("0 1500 2048 0", new DockerExecutor.RunStats(1500, 2048, 0, -1)),
+                arguments("  137\t1500  2048 1 2000\n", new DockerExecutor.RunStats(1500, 2048, 1, 2000)),
+                arguments("0 -1 -1 -1 -1", UNAVAILABLE),
+                arguments("0 1500 2048", UNAVAILABLE),
+                arguments("0 1500 abc 0 2000", UNAVAILABLE),
+                arguments("0 1500 2048 0 2000x", UNAVAILABLE),
+                arguments("", UNAVAILABLE));
+    }
+    
+    @ParameterizedTest
+    @MethodSource("statsLines")
+    void parsesRunStats(String line, DockerExecutor.RunStats expected) {
+        assertEquals(expected, DockerExecutor.RunStats.parse(line));
+    }
+    
+    // exit code, stats, wall time ms, expected verdict (null when accepted), execution time ms, memory mb
+    static Stream<Arguments> results() {
+        return Stream.of(
+                arguments(0, stats(200_000, 5 * MB, 0), 900, null, 200, 5),
+                arguments(0, stats(200_000, 5 * MB + 1, 0), 900, null, 200, 6),
+                arguments(0, UNAVAILABLE, 300, null, 300, null),
+                // Without cgroup data only the in-container timeout decides a time limit
+                arguments(0, UNAVAILABLE, 5000, null, 5000, null),
+                arguments(0, stats(1_000_000, MB, 0), 1100, null, 1000, 1),
+                arguments(0, stats(1_001_000, MB, 0), 1100, "TIME_LIMIT_EXCEEDED", 1001, 1),
+                arguments(124, stats(300_000, MB, 0), 3000, "TIME_LIMIT_EXCEEDED", 300, 1),
+                arguments(124, UNAVAILABLE, 3000, "TIME_LIMIT_EXCEEDED", 3000, null),
+                arguments(0, stats(100_000, 256 * MB, 1), 200, "MEMORY_LIMIT_EXCEEDED", 100, 256),
+                arguments(137, stats(100_000, 256 * MB, 1), 200, "MEMORY_LIMIT_EXCEEDED", 100, 256),
+                arguments(137, stats(100_000, MB, 0), 3000, "TIME_LIMIT_EXCEEDED", 100, 1),
+                arguments(137, UNAVAILABLE, 200, "MEMORY_LIMIT_EXCEEDED", 200, null),
+                arguments(153, stats(100_000, MB, 0), 200, "OUTPUT_LIMIT_EXCEEDED", 100, 1),
+                arguments(1, stats(100_000, MB, 0), 200, "RUNTIME_ERROR", 100, 1),
+                arguments(139, UNAVAILABLE, 200, "RUNTIME_ERROR", 200, null));
+    }
+    
+    @ParameterizedTest
+    @MethodSource("results")
+    void decidesVerdict(int exitCode, DockerExecutor.RunStats stats, int wallTimeMs, String verdict,
+            int executionTimeMs, Integer memoryUsedMb) {
+        InputStreamSource output = new ByteArrayResource(new byte[0]);
+        DockerExecutor.ExecutionResult result = executor.toExecutionResult(exitCode, output, "stderr", wallTimeMs,
+                stats, 1000);
+        
+        assertEquals(verdict, result.getVerdict());
+        assertEquals(verdict == null, result.isSuccess());
+        assertEquals(executionTimeMs, result.getExecutionTimeMs());
+        assertEquals(memoryUsedMb, result.getMemoryUsedMb());
+        if (verdict == null) {
+            assertSame(output, result.getOutput());
+        } else {
+            assertNull(result.getOutput());
+        }
+        assertEquals("RUNTIME_ERROR".equals(verdict) ? "stderr" : null, result.getErrorMessage());
+    }
+    
+    @Test
+    void recordsRunsOnlyWithCpuAndWallTime() {
+        executor.toExecutionResult(0, null, null, 300, new DockerExecutor.RunStats(200_000, MB, 0, 250_000), 1000);
+        verify(concurrencyController).recordRun(200_000, 250_000);
+        
+        executor.toExecutionResult(0, null, null, 300, new DockerExecutor.RunStats(200_000, MB, 0, -1), 1000);
+        executor.toExecutionResult(0, null, null, 300, UNAVAILABLE, 1000);
+        verifyNoMoreInteractions(concurrencyController);
+    }
+    
+    private static DockerExecutor.RunStats stats(long cpuUsec, long peakMemoryBytes, int oomKills) {
+        return new DockerExecutor.RunStats(cpuUsec, peakMemoryBytes, oomKills, cpuUsec + 50_000);
+    }
+}
@@ -0,0 +1,128 @@
+package com.shodhai.contest.judge;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The streaming normalizer must produce what the original trim-and-split normalization did; the
+// one deliberate difference is that blank lines before the first content are dropped too
+class TestCaseValidatorTest {
+    
+    private final TestCaseValidator validator = new TestCaseValidator();
+    
+    static Stream<String> outputs() {
+        String longLine = "x ".repeat(5000) + "y";
+        return Stream.of(
+                "1 2 3\n",
+                "1 2 3",
+                "1 2 3\r\n4 5\r\n",
+                "a\r\nb\r",
+                "a\n\n\n",
+                "a\n  \n\t\n",
+                "  a  \n\tb\t\n",
+                "a\n   \nb\n",
+                "a\n\n\nb",
+                "a" + " ".repeat(100) + "b\n",
+                "a\rb\n",
+                longLine + "\n" + longLine,
+                "",
+                "\n",
+                " \n\t\n");
+    }
+    
+    @ParameterizedTest
+    @MethodSource("outputs")
+    void normalizesLikeTrimAndSplit(String output) throws IOException {
+        String expected = sha256(legacyNormalize(output));
+        assertEquals(expected, validator.normalizedHash(bytes(output, Integer.MAX_VALUE)));
+        // Reads of one byte put every chunk boundary inside a line
+        assertEquals(expected, validator.normalizedHash(bytes(output, 1)));
+        assertEquals(expected, validator.normalizedHash(bytes(output, 8191)));
+    }
+    
+    @ParameterizedTest
+    @MethodSource("outputs")
+    void comparesLikeTrimAndSplit(String output) {
+        for (String other : outputs().toList()) {
+            boolean legacy = legacyNormalize(output).equals(legacyNormalize(other));
+            assertEquals(legacy, validator.validate(output, other).isPassed(), () -> output + " vs " + other);
+            assertEquals(legacy, validator.validate(source(output, 7), source(other, 3)).isPassed());
+        }
+    }
+    
+    @Test
+    void hashComparisonAgreesWithValidation() throws IOException {
+        String expectedHash = validator.normalizedHash(bytes("1 2\r\n3\n\n", Integer.MAX_VALUE));
+        assertTrue(validator.validateAgainstHash(source("1 2\n3", 1), expectedHash).isPassed());
+        assertFalse(validator.validateAgainstHash(source("1 2\n4", 1), expectedHash).isPassed());
+    }
+    
+    @Test
+    void emptyOutputs() {
+        assertTrue(validator.validate("", "").isPassed());
+        assertTrue(validator.validate("", "\n \n").isPassed());
+        assertFalse(validator.validate("", "0").isPassed());
+        assertFalse(validator.validate("0", "").isPassed());
+        assertFalse(validator.validate((String) null, "").isPassed());
+    }
+    
+    @Test
+    void dropsLeadingBlankLines() {
+        assertTrue(validator.validate("\n  \n1 2\n", "1 2").isPassed());
+        assertFalse(validator.validate("1\n\n2", "1\n2").isPassed());
+    }
+    
+    // The normalization TestCaseValidator used before it streamed
+    private static String legacyNormalize(String output) {
+        String[] lines = output.split("\\r?\\n");
+        StringBuilder normalized = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            normalized.append(lines[i].trim());
+            if (i < lines.length - 1) {
+                normalized.append("\n");
+            }
+        }
+        String result = normalized.toString();
+        while (result.endsWith("\n")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+    
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static InputStreamSource source(String text, int readSize) {
+        return () -> bytes(text, readSize);
+    }
+    
+    // A stream returning at most readSize bytes per read
+    private static InputStream bytes(String text, int readSize) {
+        return new FilterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, readSize));
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.shodhai.contest.judge;
+
+import com.shodhai.contest.config.JudgeConfig;
+import com.shodhai.contest.model.Contest;
+import com.shodhai.contest.model.Problem;
+import com.shodhai.contest.model.TestCase;
+import com.shodhai.contest.repository.ContestRepository;
+import com.shodhai.contest.repository.ProblemRepository;
+import com.shodhai.contest.repository.TestCaseRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// The judge materializes test data without a transaction, so neither does this test
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.sql.init.mode=never"
+})
+@Import({JudgeConfig.class, TestCaseValidator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TestDataStoreTest {
+    
+    @Autowired
+    private ContestRepository contestRepository;
+    
+    @Autowired
+    private ProblemRepository problemRepository;
+    
+    @Autowired
+    private TestCaseRepository testCaseRepository;
+    
+    @Autowired
+    private JudgeConfig judgeConfig;
+    
+    @Autowired
+    private TestCaseValidator testCaseValidator;
+    
+    @TempDir
+    private Path tempDir;
+    
+    @Test
+    void materializesLargeExpectedOutputOutsideTransaction() throws Exception {
+        Contest contest = new Contest();
+        contest.setTitle("Contest");
+        contest.setStartTime(LocalDateTime.now());
+        contest.setEndTime(LocalDateTime.now().plusHours(2));
+        contest = contestRepository.save(contest);
+        
+        Problem problem = new Problem();
+        problem.setContest(contest);
+        problem.setTitle("Problem");
+        problem = problemRepository.save(problem);
+        
+        TestCase testCase = new TestCase();
+        testCase.setProblem(problem);
+        testCase.setInput("1\n");
+        testCase.setExpectedOutput("x".repeat(4096) + "\n");
+        testCase = testCaseRepository.save(testCase);
+        
+        judgeConfig.setTempDir(tempDir.toString());
+        judgeConfig.setHashCompareThresholdBytes(1024);
+        TestDataStore store = new TestDataStore(judgeConfig, testCaseRepository, testCaseValidator);
+        
+        TestDataStore.TestSet testSet = store.acquire(problem.getId(), "v1");
+        try {
+            assertEquals(1, testSet.getTests().size());
+            String hash = testSet.getTests().get(0).getExpectedOutputHash();
+            assertNotNull(hash);
+            assertEquals(hash, testCaseRepository.findById(testCase.getId()).orElseThrow().getExpectedOutputHash());
+        } finally {
+            store.release(testSet);
+        }
+    }
+}
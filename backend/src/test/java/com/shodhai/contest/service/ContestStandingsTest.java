@@ -0,0 +1,119 @@
+package com.shodhai.contest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContestStandingsTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+    
+    // userId, problemId, score, minutes after START
+    private static final int[][] ACCEPTED = {
+            {1, 1, 50, 10},
+            {1, 1, 100, 30},
+            {1, 2, 100, 40},
+            {2, 1, 100, 5},
+            {2, 2, 100, 50},
+            {2, 2, 100, 45},
+            {3, 1, 100, 20},
+            {3, 2, 60, 25},
+            {4, 1, 100, 60},
+            {4, 2, 100, 35},
+    };
+    
+    @Test
+    void mergesAcceptedResultsInAnyOrderAndMoreThanOnce() {
+        List<String> expected = describe(apply(List.of(ACCEPTED)));
+        assertEquals(List.of("1 200 2 40", "2 200 2 45", "4 200 2 60", "3 160 2 25"), expected);
+        
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            List<int[]> results = new ArrayList<>(List.of(ACCEPTED));
+            results.addAll(List.of(ACCEPTED).subList(0, random.nextInt(ACCEPTED.length)));
+            Collections.shuffle(results, random);
+            assertEquals(expected, describe(apply(results)));
+        }
+    }
+    
+    @Test
+    void keepsTheBestScoreAndEarliestAcceptTimeSeparately() {
+        ContestStandings standings = new ContestStandings();
+        standings.applyAccepted(1L, "a", 1L, 100, START.plusMinutes(30));
+        standings.applyAccepted(1L, "a", 1L, 40, START.plusMinutes(10));
+        standings.applyAccepted(1L, null, 1L, 100, START.plusMinutes(50));
+        
+        ContestStandings.Standing standing = standings.range(0, 1).get(0);
+        assertEquals(100, standing.getTotalScore());
+        assertEquals(START.plusMinutes(10), standing.getLastAcceptedAt());
+        assertEquals("a", standing.getUsername());
+        assertEquals(1, standings.size());
+    }
+    
+    @Test
+    void skipsANewUserWithoutAName() {
+        ContestStandings standings = new ContestStandings();
+        
+        assertFalse(standings.applyAccepted(1L, null, 1L, 100, START));
+        assertFalse(standings.hasUser(1L));
+        assertEquals(0, standings.size());
+        assertNull(standings.around(1L, 2));
+    }
+    
+    @Test
+    void replaceUserCanLowerAScoreOrDropTheUser() {
+        ContestStandings standings = apply(List.of(ACCEPTED));
+        
+        standings.replaceUser(2L, null, Map.of(1L, new ContestStandings.ProblemBest(100, START.plusMinutes(5))));
+        standings.replaceUser(4L, null, Map.of());
+        
+        assertEquals(List.of("1 200 2 40", "3 160 2 25", "2 100 1 5"), describe(standings));
+        assertEquals("user2", standings.range(2, 1).get(0).getUsername());
+        assertFalse(standings.hasUser(4L));
+    }
+    
+    @Test
+    void aroundClampsAtTheEnds() {
+        ContestStandings standings = apply(List.of(ACCEPTED));
+        
+        ContestStandings.Window first = standings.around(1L, 2);
+        assertEquals(0, first.getIndex());
+        assertEquals(0, first.getFrom());
+        assertEquals(4, first.getSize());
+        assertEquals(3, first.getStandings().size());
+        
+        ContestStandings.Window last = standings.around(3L, 1);
+        assertEquals(3, last.getIndex());
+        assertEquals(2, last.getFrom());
+        assertEquals(2, last.getStandings().size());
+    }
+    
+    private static ContestStandings apply(List<int[]> results) {
+        ContestStandings standings = new ContestStandings();
+        for (int[] result : results) {
+            assertTrue(standings.applyAccepted((long) result[0], "user" + result[0], (long) result[1], result[2],
+                    START.plusMinutes(result[3])));
+        }
+        return standings;
+    }
+    
+    // "userId totalScore problemsSolved minutes" per standing, in board order
+    private static List<String> describe(ContestStandings standings) {
+        return standings.range(0, standings.size()).stream()
+                .map(standing -> standing.getUserId() + " " + standing.getTotalScore() + " "
+                        + standing.getProblemsSolved() + " "
+                        + Duration.between(START, standing.getLastAcceptedAt()).toMinutes())
+                .toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.shodhai.contest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderStatisticTreeTest {
+    
+    @Test
+    void keepsKeysInComparatorOrder() {
+        List<Integer> keys = new ArrayList<>(IntStream.range(0, 1000).boxed().toList());
+        Collections.shuffle(keys, new Random(1));
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.reverseOrder());
+        keys.forEach(tree::add);
+        
+        List<Integer> expected = IntStream.range(0, 1000).map(i -> 999 - i).boxed().toList();
+        assertEquals(1000, tree.size());
+        assertEquals(expected, tree.range(0, 1000));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, tree.indexOf(expected.get(i)));
+        }
+    }
+    
+    @Test
+    void keysEqualOnOneFieldStayDistinctUnderTheTieBreak() {
+        Comparator<int[]> order = Comparator.<int[]>comparingInt(key -> key[0]).thenComparingInt(key -> key[1]);
+        OrderStatisticTree<int[]> tree = new OrderStatisticTree<>(order);
+        int[] first = {5, 2};
+        int[] second = {5, 1};
+        int[] third = {3, 9};
+        tree.add(first);
+        tree.add(second);
+        tree.add(third);
+        
+        assertEquals(List.of(third, second, first), tree.range(0, 3));
+        assertEquals(1, tree.indexOf(new int[] {5, 1}));
+        assertEquals(-1, tree.indexOf(new int[] {5, 3}));
+    }
+    
+    @Test
+    void rangeAtTheEdges() {
+        OrderStatisticTree<Integer> tree = tree(0, 1, 2, 3, 4);
+        
+        assertEquals(List.of(3, 4), tree.range(3, 10));
+        assertEquals(List.of(), tree.range(5, 1));
+        assertEquals(List.of(), tree.range(7, 3));
+        assertEquals(List.of(), tree.range(2, 0));
+        assertEquals(List.of(0, 1), tree.range(-2, 4));
+        assertEquals(List.of(0, 1, 2, 3, 4), tree.range(0, Integer.MAX_VALUE));
+        assertEquals(List.of(), new OrderStatisticTree<Integer>(Comparator.naturalOrder()).range(0, 5));
+    }
+    
+    @Test
+    void indexOfAfterRemove() {
+        OrderStatisticTree<Integer> tree = tree(10, 20, 30, 40, 50);
+        
+        assertTrue(tree.remove(20));
+        assertFalse(tree.remove(20));
+        assertFalse(tree.remove(25));
+        assertEquals(4, tree.size());
+        assertEquals(-1, tree.indexOf(20));
+        assertEquals(0, tree.indexOf(10));
+        assertEquals(1, tree.indexOf(30));
+        assertEquals(3, tree.indexOf(50));
+        
+        assertTrue(tree.remove(10));
+        assertTrue(tree.remove(50));
+        assertEquals(List.of(30, 40), tree.range(0, 5));
+        assertEquals(0, tree.indexOf(30));
+        
+        tree.add(20);
+        assertEquals(0, tree.indexOf(20));
+        assertEquals(2, tree.indexOf(40));
+    }
+    
+    @Test
+    void matchesASortedListUnderRandomChanges() {
+        Random random = new Random(7);
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(500);
+            int position = Collections.binarySearch(expected, key);
+            if (position >= 0) {
+                assertTrue(tree.remove(key));
+                expected.remove(position);
+            } else {
+                tree.add(key);
+                expected.add(-position - 1, key);
+            }
+        }
+        
+        assertEquals(expected.size(), tree.size());
+        assertEquals(expected, tree.range(0, expected.size()));
+        int from = expected.size() / 3;
+        assertEquals(expected.subList(from, from + 10), tree.range(from, 10));
+    }
+    
+    private static OrderStatisticTree<Integer> tree(Integer... keys) {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+        for (Integer key : keys) {
+            tree.add(key);
+        }
+        return tree;
+    }
+}
@@ -73,7 +73,12 @@ export default function CodeEditor({ contestId, problemId, userId }: CodeEditorP
       setCurrentSubmission(submission);
     } catch (err: any) {
       console.error('Error submitting code:', err);
-      alert('Failed to submit code. Please try again.');
+      if (err.response?.status === 429) {
+        const retryAfter = err.response.headers['retry-after'];
+        alert(`The judge is busy. Please submit again in ${retryAfter || 'a few'} seconds.`);
+      } else {
+        alert('Failed to submit code. Please try again.');
+      }
     } finally {
       setSubmitting(false);
     }
@@ -2,9 +2,9 @@
 
 import { useState, useEffect } from 'react';
 import { Trophy, Loader2, RefreshCw } from 'lucide-react';
-import { getLeaderboard } from '@/lib/api';
+import { getLeaderboard, getLeaderboardStreamUrl } from '@/lib/api';
 import { formatDate } from '@/lib/utils';
-import type { LeaderboardResponse } from '@/lib/types';
+import type { LeaderboardDelta, LeaderboardResponse } from '@/lib/types';
 
 interface LeaderboardProps {
   contestId: number;
@@ -17,14 +17,38 @@ export default function Leaderboard({ contestId, currentUserId }: LeaderboardPro
   const [lastUpdate, setLastUpdate] = useState<string>('');
 
   useEffect(() => {
-    loadLeaderboard();
+    // The stream starts with a snapshot and reconnects on its own, getting a fresh snapshot
+    const source = new EventSource(getLeaderboardStreamUrl(contestId));
 
-    // Auto-refresh every 20 seconds
-    const interval = setInterval(loadLeaderboard, 20000);
+    source.addEventListener('snapshot', (event) => {
+      setLeaderboard(JSON.parse((event as MessageEvent).data));
+      setLastUpdate(new Date().toLocaleTimeString());
+      setLoading(false);
+    });
+
+    source.addEventListener('delta', (event) => {
+      const delta: LeaderboardDelta = JSON.parse((event as MessageEvent).data);
+      setLeaderboard((current) => (current ? applyDelta(current, delta) : current));
+      setLastUpdate(new Date().toLocaleTimeString());
+    });
 
-    return () => clearInterval(interval);
+    source.onerror = () => {
+      setLoading(false);
+    };
+
+    return () => source.close();
   }, [contestId]);
 
+  const applyDelta = (current: LeaderboardResponse, delta: LeaderboardDelta): LeaderboardResponse => {
+    const changed = new Set(delta.entries.map((entry) => entry.userId));
+    const removed = new Set(delta.removed);
+    const entries = current.entries
+      .filter((entry) => !changed.has(entry.userId) && !removed.has(entry.userId))
+      .concat(delta.entries)
+      .sort((a, b) => a.rank - b.rank);
+    return { ...current, lastUpdated: delta.lastUpdated, entries };
+  };
+
   const loadLeaderboard = async () => {
     try {
       const data = await getLeaderboard(contestId);
@@ -131,7 +155,7 @@ export default function Leaderboard({ contestId, currentUserId }: LeaderboardPro
 
       {/* Footer */}
       <div className="mt-4 text-center text-xs text-gray-500">
-        Showing top {leaderboard.entries.length} participants
+        Showing top {leaderboard.entries.length} of {leaderboard.totalEntries} participants
       </div>
     </div>
   );
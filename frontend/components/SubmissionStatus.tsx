@@ -9,48 +9,71 @@ import {
   AlertTriangle,
   X,
 } from 'lucide-react';
-import { getSubmissionStatus } from '@/lib/api';
+import { getSubmissionStatus, getSubmissionStreamUrl } from '@/lib/api';
 import { getStatusColor, getStatusText, formatTime, formatMemory } from '@/lib/utils';
-import type { Submission, SubmissionStatus as Status } from '@/lib/types';
+import type { Submission, SubmissionStatus as Status, SubmissionStatusEvent } from '@/lib/types';
 
 interface SubmissionStatusProps {
   submission: Submission;
   onClose: () => void;
 }
 
+function shouldPoll(status: Status): boolean {
+  return status === 'PENDING' || status === 'RUNNING';
+}
+
 export default function SubmissionStatus({
   submission: initialSubmission,
   onClose,
 }: SubmissionStatusProps) {
   const [submission, setSubmission] = useState<Submission>(initialSubmission);
-  const [polling, setPolling] = useState(true);
+  const [polling, setPolling] = useState(shouldPoll(initialSubmission.status));
 
   useEffect(() => {
-    if (!shouldPoll(submission.status)) {
-      setPolling(false);
+    if (!shouldPoll(initialSubmission.status)) {
       return;
     }
 
-    const interval = setInterval(async () => {
+    // Status transitions are pushed while judging; the submission is read once the stream is
+    // connected, in case it moved on before, and once more for the details of the verdict
+    const source = new EventSource(getSubmissionStreamUrl(initialSubmission.userId));
+
+    const refresh = async () => {
       try {
-        const updated = await getSubmissionStatus(submission.id);
+        const updated = await getSubmissionStatus(initialSubmission.id);
         setSubmission(updated);
-
         if (!shouldPoll(updated.status)) {
           setPolling(false);
-          clearInterval(interval);
+          source.close();
         }
       } catch (err) {
-        console.error('Error polling submission status:', err);
+        console.error('Error reading submission status:', err);
       }
-    }, 2000); // Poll every 2 seconds
+    };
 
-    return () => clearInterval(interval);
-  }, [submission.id, submission.status]);
+    source.addEventListener('ready', refresh);
 
-  const shouldPoll = (status: Status): boolean => {
-    return status === 'PENDING' || status === 'RUNNING';
-  };
+    source.addEventListener('status', (event) => {
+      const update: SubmissionStatusEvent = JSON.parse((event as MessageEvent).data);
+      if (update.submissionId !== initialSubmission.id) {
+        return;
+      }
+      if (shouldPoll(update.status)) {
+        setSubmission((current) => ({
+          ...current,
+          status: update.status,
+          testsCompleted: update.testsCompleted,
+          totalTestCases: update.totalTestCases,
+          queuePosition: undefined,
+          estimatedWaitSeconds: undefined,
+        }));
+      } else {
+        refresh();
+      }
+    });
+
+    return () => source.close();
+  }, [initialSubmission.id, initialSubmission.userId]);
 
   const getStatusIcon = () => {
     switch (submission.status) {
@@ -63,6 +86,7 @@ export default function SubmissionStatus({
         return <Loader2 className="w-6 h-6 text-blue-600 animate-spin" />;
       case 'TIME_LIMIT_EXCEEDED':
       case 'MEMORY_LIMIT_EXCEEDED':
+      case 'OUTPUT_LIMIT_EXCEEDED':
         return <Clock className="w-6 h-6 text-orange-600" />;
       default:
         return <AlertTriangle className="w-6 h-6 text-purple-600" />;
@@ -79,7 +103,16 @@ export default function SubmissionStatus({
               {getStatusText(submission.status)}
             </h3>
             <p className="text-sm text-gray-600">
-              {polling ? 'Judging in progress...' : 'Submission completed'}
+              {!polling
+                ? 'Submission completed'
+                : submission.queuePosition
+                ? `Position ${submission.queuePosition} in queue` +
+                  (submission.estimatedWaitSeconds != null
+                    ? `, about ${submission.estimatedWaitSeconds}s`
+                    : '')
+                : submission.testsCompleted != null
+                ? `Judging: ${submission.testsCompleted}/${submission.totalTestCases} tests done`
+                : 'Judging in progress...'}
             </p>
           </div>
         </div>
@@ -64,12 +64,40 @@ export async function getSubmissionStatus(submissionId: number): Promise<Submiss
   return response.data.data;
 }
 
-export async function getLeaderboard(contestId: number): Promise<LeaderboardResponse> {
+export async function getLeaderboard(
+  contestId: number,
+  fromRank = 1,
+  count = 100
+): Promise<LeaderboardResponse> {
   const response = await api.get<ApiResponse<LeaderboardResponse>>(
-    `/contests/${contestId}/leaderboard`
+    `/contests/${contestId}/leaderboard`,
+    { params: { fromRank, count } }
   );
   return response.data.data;
 }
 
+// The user's rank with up to radius ranks above and below it
+export async function getLeaderboardAroundUser(
+  contestId: number,
+  userId: number,
+  radius = 5
+): Promise<LeaderboardResponse> {
+  const response = await api.get<ApiResponse<LeaderboardResponse>>(
+    `/contests/${contestId}/leaderboard/users/${userId}`,
+    { params: { radius } }
+  );
+  return response.data.data;
+}
+
+// Server-sent events: a "snapshot" LeaderboardResponse, then LeaderboardDelta "delta" events
+export function getLeaderboardStreamUrl(contestId: number): string {
+  return `${API_URL}/contests/${contestId}/leaderboard/stream`;
+}
+
+// Server-sent events: "ready" once connected, then a SubmissionStatusEvent "status" per transition
+export function getSubmissionStreamUrl(userId: number): string {
+  return `${API_URL}/submissions/stream?userId=${userId}`;
+}
+
 export { api };
 
@@ -50,9 +50,29 @@ export interface Submission {
   totalTestCases: number;
   submittedAt: string;
   completedAt?: string;
+  // Only present while the submission waits in the judge queue
+  queuePosition?: number;
+  estimatedWaitSeconds?: number;
+  // Only pushed over the status stream while tests run
+  testsCompleted?: number;
   testCaseResults?: TestCaseResult[];
 }
 
+export interface SubmissionStatusEvent {
+  submissionId: number;
+  problemId: number;
+  contestId: number;
+  status: SubmissionStatus;
+  result?: string;
+  score?: number;
+  testsCompleted: number;
+  testCasesPassed?: number;
+  totalTestCases: number;
+  executionTimeMs?: number;
+  memoryUsedMb?: number;
+  completedAt?: string;
+}
+
 export type SubmissionStatus = 
   | 'PENDING' 
   | 'RUNNING' 
@@ -60,6 +80,7 @@ export type SubmissionStatus =
   | 'WRONG_ANSWER' 
   | 'TIME_LIMIT_EXCEEDED'
   | 'MEMORY_LIMIT_EXCEEDED'
+  | 'OUTPUT_LIMIT_EXCEEDED'
   | 'RUNTIME_ERROR'
   | 'COMPILATION_ERROR'
   | 'SYSTEM_ERROR';
@@ -81,9 +102,17 @@ export interface LeaderboardEntry {
 }
 
 export interface LeaderboardResponse {
+  contestId: number;
+  lastUpdated: string;
+  totalEntries: number;
+  entries: LeaderboardEntry[];
+}
+
+export interface LeaderboardDelta {
   contestId: number;
   lastUpdated: string;
   entries: LeaderboardEntry[];
+  removed: number[];
 }
 
 export interface ApiResponse<T> {
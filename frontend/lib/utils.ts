@@ -29,6 +29,7 @@ export function getStatusColor(status: SubmissionStatus): string {
       return 'text-red-600 bg-red-100';
     case 'TIME_LIMIT_EXCEEDED':
     case 'MEMORY_LIMIT_EXCEEDED':
+    case 'OUTPUT_LIMIT_EXCEEDED':
       return 'text-orange-600 bg-orange-100';
     case 'RUNTIME_ERROR':
     case 'COMPILATION_ERROR':
@@ -54,6 +55,8 @@ export function getStatusText(status: SubmissionStatus): string {
       return 'Time Limit Exceeded';
     case 'MEMORY_LIMIT_EXCEEDED':
       return 'Memory Limit Exceeded';
+    case 'OUTPUT_LIMIT_EXCEEDED':
+      return 'Output Limit Exceeded';
     case 'RUNTIME_ERROR':
       return 'Runtime Error';
     case 'COMPILATION_ERROR':